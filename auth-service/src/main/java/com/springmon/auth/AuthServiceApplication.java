@@ -1,9 +1,12 @@
 package com.springmon.auth;
 
+import com.springmon.common.tracing.TracingConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 
 @SpringBootApplication
+@Import(TracingConfig.class)
 public class AuthServiceApplication {
 
     public static void main(String[] args) {
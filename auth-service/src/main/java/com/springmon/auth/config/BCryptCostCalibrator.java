@@ -0,0 +1,62 @@
+package com.springmon.auth.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sceglie all'avvio il cost BCrypt piu' alto il cui hashing su questo host resta entro il budget
+ * di latenza: ogni punto di cost raddoppia il tempo, quindi si misura a salire e ci si ferma al primo
+ * cost che sfora. Il risultato non scende mai sotto min-cost.
+ */
+final class BCryptCostCalibrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BCryptCostCalibrator.class);
+
+    private static final int WARMUP_ROUNDS = 5;
+
+    private static final int SAMPLES = 3;
+
+    private BCryptCostCalibrator() {
+    }
+
+    static int calibrate(long targetMs, int minCost, int maxCost) {
+        String sample = "calibration-" + System.nanoTime();
+        BCryptPasswordEncoder warmup = new BCryptPasswordEncoder(4);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            warmup.encode(sample);
+        }
+
+        int cost = minCost;
+        long costMs = -1;
+        for (int candidate = minCost; candidate <= maxCost; candidate++) {
+            long elapsedMs = measure(candidate, sample);
+            if (elapsedMs > targetMs) {
+                if (candidate == minCost) {
+                    costMs = elapsedMs;
+                }
+                break;
+            }
+            cost = candidate;
+            costMs = elapsedMs;
+        }
+        logger.info("BCrypt cost {} ({} ms per hash, budget {} ms)", cost, costMs, targetMs);
+        return cost;
+    }
+
+    /**
+     * Minimo su piu' campioni: il tempo di un hash e' deterministico, le variazioni sono rumore dell'host
+     */
+    private static long measure(int cost, String sample) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(cost);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode(sample);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(best);
+    }
+}
@@ -2,6 +2,7 @@ package com.springmon.auth.config;
 
 import com.springmon.auth.service.CustomUserDetailsService;
 import com.springmon.auth.service.JwtTokenProvider;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -30,8 +31,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromToken(jwt);
+            Claims claims = StringUtils.hasText(jwt) ? tokenProvider.parseClaims(jwt) : null;
+            if (claims != null) {
+                String username = claims.getSubject();
 
                 UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
                 UsernamePasswordAuthenticationToken authentication = 
@@ -1,45 +1,96 @@
 package com.springmon.auth.config;
 
 import com.springmon.auth.service.CustomUserDetailsService;
+import com.springmon.auth.service.PasswordHashingExecutor;
+import com.springmon.auth.tracing.TracingPasswordEncoder;
+import com.springmon.common.tracing.Tracer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.util.StringUtils;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity(prePostEnabled = true)
 public class SecurityConfig {
 
+    private static final String BCRYPT_ID = "bcrypt";
+
+    public static final String SERVICE_TOKEN_HEADER = "X-Service-Token";
+
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
 
     @Autowired
     private JwtAuthenticationEntryPoint unauthorizedHandler;
 
+    @Autowired
+    private Tracer tracer;
+
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
         return new JwtAuthenticationFilter();
     }
 
+    @Value("${auth.validate.service-token:}")
+    private String validateServiceToken;
+
+    @Value("${auth.password-hashing.bcrypt.cost:0}")
+    private int bcryptCost;
+
+    @Value("${auth.password-hashing.bcrypt.target-ms:80}")
+    private long bcryptTargetMs;
+
+    @Value("${auth.password-hashing.bcrypt.min-cost:10}")
+    private int bcryptMinCost;
+
+    @Value("${auth.password-hashing.bcrypt.max-cost:16}")
+    private int bcryptMaxCost;
+
+    /**
+     * Hash salvati come {bcrypt}...; cost fisso o calibrato all'avvio sul budget target-ms.
+     * Gli hash senza prefisso (registrati prima, seed di init.sql) sono verificati come BCrypt;
+     * al login quelli senza prefisso o con cost inferiore vengono ricodificati (updatePassword).
+     * Encode e matches girano sul pool di hashing.
+     */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int cost = bcryptCost > 0 ? bcryptCost
+                : BCryptCostCalibrator.calibrate(bcryptTargetMs, bcryptMinCost, bcryptMaxCost);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(BCRYPT_ID, new BCryptPasswordEncoder(cost));
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(BCRYPT_ID, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return passwordHashingExecutor.wrap(new TracingPasswordEncoder(delegating, tracer));
     }
 
     @Bean
@@ -47,6 +98,7 @@ public class SecurityConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(customUserDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setUserDetailsPasswordService(customUserDetailsService);
         return authProvider;
     }
 
@@ -62,8 +114,9 @@ public class SecurityConfig {
             .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(authz -> authz
-                .requestMatchers("/api/auth/login", "/api/auth/register", "/api/auth/refresh", "/api/auth/validate").permitAll()
-                .requestMatchers("/api/auth/health", "/actuator/**").permitAll()
+                .requestMatchers("/api/auth/login", "/api/auth/register", "/api/auth/refresh").permitAll()
+                .requestMatchers("/api/auth/validate", "/api/auth/validate/batch").access(this::hasServiceToken)
+                .requestMatchers("/api/auth/health", "/api/health", "/actuator/**").permitAll()
                 .requestMatchers("/h2-console/**").permitAll()
                 .anyRequest().authenticated()
             );
@@ -77,6 +130,19 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * /validate e /validate/batch servono ai servizi interni: token condiviso nell'header X-Service-Token
+     * (auth.validate.service-token), confrontato a tempo costante. Senza token configurato restano chiusi.
+     */
+    private AuthorizationDecision hasServiceToken(Supplier<Authentication> authentication,
+                                                  RequestAuthorizationContext context) {
+        String presented = context.getRequest().getHeader(SERVICE_TOKEN_HEADER);
+        boolean granted = StringUtils.hasText(validateServiceToken) && presented != null
+                && MessageDigest.isEqual(validateServiceToken.getBytes(StandardCharsets.UTF_8),
+                        presented.getBytes(StandardCharsets.UTF_8));
+        return new AuthorizationDecision(granted);
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
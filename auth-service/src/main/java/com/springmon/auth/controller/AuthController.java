@@ -1,17 +1,25 @@
 package com.springmon.auth.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.springmon.auth.dto.*;
 import com.springmon.auth.service.AuthService;
+import com.springmon.auth.service.TokenBatchValidator;
+import io.jsonwebtoken.Claims;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -21,12 +29,25 @@ public class AuthController {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private TokenBatchValidator tokenBatchValidator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * L'hash BCrypt di login e registrazione gira sul pool di hashing (PasswordHashingExecutor):
+     * con la coda piena la risposta e' 503
+     */
     @PostMapping("/login")
     public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
         try {
             AuthResponse authResponse = authService.authenticateUser(loginRequest);
             return ResponseEntity.ok(authResponse);
         } catch (Exception e) {
+            if (isRejected(e)) {
+                return serviceBusy();
+            }
             Map<String, String> error = new HashMap<>();
             error.put("error", "Invalid username or password");
             error.put("message", e.getMessage());
@@ -40,6 +61,9 @@ public class AuthController {
             AuthResponse authResponse = authService.registerUser(registerRequest);
             return ResponseEntity.status(HttpStatus.CREATED).body(authResponse);
         } catch (Exception e) {
+            if (isRejected(e)) {
+                return serviceBusy();
+            }
             Map<String, String> error = new HashMap<>();
             error.put("error", "Registration failed");
             error.put("message", e.getMessage());
@@ -61,11 +85,14 @@ public class AuthController {
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<?> logout() {
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                    @RequestParam(defaultValue = "false") boolean everywhere) {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             if (authentication != null && authentication.getName() != null) {
-                authService.logout(authentication.getName());
+                String accessToken = authorization != null && authorization.startsWith("Bearer ")
+                        ? authorization.substring(7) : null;
+                authService.logout(authentication.getName(), accessToken, everywhere);
             }
             
             Map<String, String> response = new HashMap<>();
@@ -82,13 +109,12 @@ public class AuthController {
     @PostMapping("/validate")
     public ResponseEntity<?> validateToken(@RequestParam String token) {
         try {
-            boolean isValid = authService.validateToken(token);
+            Claims claims = authService.validClaims(token);
             Map<String, Object> response = new HashMap<>();
-            response.put("valid", isValid);
+            response.put("valid", claims != null);
             
-            if (isValid) {
-                String username = authService.getUsernameFromToken(token);
-                response.put("username", username);
+            if (claims != null) {
+                response.put("username", claims.getSubject());
             }
             
             return ResponseEntity.ok(response);
@@ -100,6 +126,48 @@ public class AuthController {
         }
     }
 
+    /**
+     * Valida un array JSON di token; i risultati seguono l'ordine di input.
+     * Oltre un blocco la risposta e' scritta in streaming man mano che i blocchi sono pronti.
+     * Il tipo di ritorno dichiarato deve essere StreamingResponseBody: Spring sceglie il gestore
+     * dal tipo generico, con ResponseEntity<?> la lambda verrebbe serializzata da Jackson come {}.
+     */
+    @PostMapping("/validate/batch")
+    public ResponseEntity<StreamingResponseBody> validateTokens(@RequestBody List<String> tokens) {
+        if (tokens.size() > tokenBatchValidator.getMaxTokens()) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Too many tokens");
+            error.put("message", "A batch may contain at most " + tokenBatchValidator.getMaxTokens() + " tokens");
+            return json(HttpStatus.BAD_REQUEST, error);
+        }
+        if (tokenBatchValidator.isSingleChunk(tokens)) {
+            return json(HttpStatus.OK, tokenBatchValidator.validateAll(tokens));
+        }
+
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            tokenBatchValidator.validate(tokens, results -> {
+                for (TokenValidationResult result : results) {
+                    generator.writeObject(result);
+                }
+                generator.flush();
+            });
+            generator.writeEndArray();
+            generator.close();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Corpo gia' calcolato sul thread della richiesta, scritto come StreamingResponseBody
+     */
+    private ResponseEntity<StreamingResponseBody> json(HttpStatus status, Object value) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, value));
+    }
+
     @GetMapping("/me")
     public ResponseEntity<?> getCurrentUser() {
         try {
@@ -127,6 +195,25 @@ public class AuthController {
         response.put("service", "auth-service");
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Hash rifiutato dal pool, anche se avvolto da Spring Security (InternalAuthenticationServiceException)
+     */
+    private static boolean isRejected(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RejectedExecutionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ResponseEntity<?> serviceBusy() {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Service busy");
+        error.put("message", "Too many concurrent authentication requests, retry later");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(error);
+    }
 }
 
 // Nuovo controller per endpoint globali fuori da /api/auth
@@ -0,0 +1,42 @@
+package com.springmon.auth.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * Esito della validazione di un token nel batch: subject e scadenza sono presenti anche per i token scaduti o revocati
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TokenValidationResult {
+
+    public enum Status {
+        VALID, EXPIRED, REVOKED, INVALID
+    }
+
+    private final Status status;
+    private final String subject;
+    private final Instant expiresAt;
+
+    public TokenValidationResult(Status status, String subject, Instant expiresAt) {
+        this.status = status;
+        this.subject = subject;
+        this.expiresAt = expiresAt;
+    }
+
+    public static TokenValidationResult invalid() {
+        return new TokenValidationResult(Status.INVALID, null, null);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -1,7 +1,6 @@
 package com.springmon.auth.entity;
 
 import jakarta.persistence.*;
-import jakarta.validation.constraints.NotBlank;
 
 import java.time.LocalDateTime;
 
@@ -13,9 +12,11 @@ public class RefreshToken {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @NotBlank
-    @Column(unique = true, nullable = false)
-    private String token;
+    /**
+     * SHA-256 del refresh token (RefreshTokenGenerator.digest); il token in chiaro non viene salvato
+     */
+    @Column(name = "token_hash", unique = true, nullable = false, length = 32)
+    private byte[] tokenHash;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
@@ -32,9 +33,9 @@ public class RefreshToken {
         this.createdAt = LocalDateTime.now();
     }
 
-    public RefreshToken(String token, User user, LocalDateTime expiryDate) {
+    public RefreshToken(byte[] tokenHash, User user, LocalDateTime expiryDate) {
         this();
-        this.token = token;
+        this.tokenHash = tokenHash;
         this.user = user;
         this.expiryDate = expiryDate;
     }
@@ -59,12 +60,12 @@ public class RefreshToken {
         this.id = id;
     }
 
-    public String getToken() {
-        return token;
+    public byte[] getTokenHash() {
+        return tokenHash;
     }
 
-    public void setToken(String token) {
-        this.token = token;
+    public void setTokenHash(byte[] tokenHash) {
+        this.tokenHash = tokenHash;
     }
 
     public User getUser() {
@@ -94,7 +95,6 @@ public class RefreshToken {
     @Override
     public String toString() {        return "RefreshToken{" +
                 "id=" + id +
-                ", token='" + token.substring(0, Math.min(token.length(), 20)) + "...'" +
                 ", userId=" + (user != null ? user.getId() : null) +
                 ", expiryDate=" + expiryDate +
                 '}';
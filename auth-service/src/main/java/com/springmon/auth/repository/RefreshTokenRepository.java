@@ -14,9 +14,25 @@ import java.util.Optional;
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
 
-    Optional<RefreshToken> findByToken(String token);
+    /**
+     * Ricerca per digest sull'indice univoco di token_hash, con utente e ruoli (EAGER) nella stessa query
+     */
+    @Query("SELECT rt FROM RefreshToken rt JOIN FETCH rt.user u LEFT JOIN FETCH u.roles WHERE rt.tokenHash = :tokenHash")
+    Optional<RefreshToken> findByTokenHash(@Param("tokenHash") byte[] tokenHash);
+
+    Optional<RefreshToken> findByUser(User user);
+
+    /**
+     * Riscrive il token di una sola riga dell'utente (la piu' vecchia se ce ne sono piu' d'una);
+     * restituisce 0 se l'utente non ha ancora un refresh token
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken rt SET rt.tokenHash = :tokenHash, rt.expiryDate = :expiryDate, rt.createdAt = :createdAt " +
+           "WHERE rt.id = (SELECT MIN(r.id) FROM RefreshToken r WHERE r.user.id = :userId)")
+    int replaceToken(@Param("userId") Long userId, @Param("tokenHash") byte[] tokenHash,
+                     @Param("expiryDate") LocalDateTime expiryDate, @Param("createdAt") LocalDateTime createdAt);
 
-    Optional<RefreshToken> findByUser(User user);    @Modifying
+    @Modifying
     @Query("DELETE FROM RefreshToken rt WHERE rt.user = :user")
     void deleteByUser(@Param("user") User user);
 
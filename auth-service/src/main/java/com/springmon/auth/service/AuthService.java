@@ -9,6 +9,7 @@ import com.springmon.auth.entity.User;
 import com.springmon.auth.repository.RefreshTokenRepository;
 import com.springmon.auth.repository.RoleRepository;
 import com.springmon.auth.repository.UserRepository;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -45,6 +46,15 @@ public class AuthService {
     @Autowired
     private JwtTokenProvider tokenProvider;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private LastLoginRecorder lastLoginRecorder;
+
+    @Autowired
+    private RefreshTokenGenerator refreshTokenGenerator;
+
     public AuthResponse authenticateUser(LoginRequest loginRequest) {
         Authentication authentication = authenticationManager.authenticate(
             new UsernamePasswordAuthenticationToken(
@@ -55,17 +65,17 @@ public class AuthService {
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
+        // Principal caricato da CustomUserDetailsService nella stessa transazione: nessuna altra lettura
+        User user = (User) authentication.getPrincipal();
+
         String jwt = tokenProvider.generateToken(authentication);
-        String refreshToken = tokenProvider.generateRefreshToken(authentication.getName());
+        String refreshToken = refreshTokenGenerator.generate();
 
         // Save refresh token
-        saveRefreshToken(authentication.getName(), refreshToken);
+        saveRefreshToken(user, refreshToken);
 
-        // Update last login
-        updateLastLogin(authentication.getName());
-
-        User user = userRepository.findByUsername(authentication.getName())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        // Update last login (write-behind, fuori dalla transazione del login)
+        lastLoginRecorder.record(user.getId(), LocalDateTime.now());
 
         return new AuthResponse(
             jwt,
@@ -109,10 +119,11 @@ public class AuthService {
 
         // Generate tokens
         String jwt = tokenProvider.generateTokenFromUsername(savedUser.getUsername());
-        String refreshToken = tokenProvider.generateRefreshToken(savedUser.getUsername());
+        String refreshToken = refreshTokenGenerator.generate();
 
         // Save refresh token
-        saveRefreshToken(savedUser.getUsername(), refreshToken);
+        refreshTokenRepository.save(new RefreshToken(RefreshTokenGenerator.digest(refreshToken), savedUser,
+                refreshTokenExpiry()));
 
         return new AuthResponse(
             jwt,
@@ -124,7 +135,7 @@ public class AuthService {
     }
 
     public AuthResponse refreshToken(String refreshTokenValue) {
-        RefreshToken refreshToken = refreshTokenRepository.findByToken(refreshTokenValue)
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHash(RefreshTokenGenerator.digest(refreshTokenValue))
                 .orElseThrow(() -> new RuntimeException("Refresh token not found"));
 
         if (refreshToken.getExpiryDate().isBefore(LocalDateTime.now())) {
@@ -134,10 +145,10 @@ public class AuthService {
 
         User user = refreshToken.getUser();
         String newAccessToken = tokenProvider.generateTokenFromUsername(user.getUsername());
-        String newRefreshToken = tokenProvider.generateRefreshToken(user.getUsername());
+        String newRefreshToken = refreshTokenGenerator.generate();
 
         // Update refresh token
-        refreshToken.setToken(newRefreshToken);
+        refreshToken.setTokenHash(RefreshTokenGenerator.digest(newRefreshToken));
         refreshToken.setExpiryDate(LocalDateTime.now().plusSeconds(tokenProvider.getRefreshTokenExpirationInMs() / 1000));
         refreshTokenRepository.save(refreshToken);
 
@@ -150,36 +161,47 @@ public class AuthService {
         );
     }
 
-    public void logout(String username) {
+    /**
+     * Elimina i refresh token e revoca l'access token usato per il logout,
+     * oppure con everywhere tutti gli access token gia' emessi all'utente
+     */
+    public void logout(String username, String accessToken, boolean everywhere) {
         refreshTokenRepository.deleteByUser_Username(username);
+        if (everywhere) {
+            tokenRevocationService.revokeUser(username);
+        } else if (accessToken != null) {
+            tokenRevocationService.revokeToken(accessToken);
+        }
     }
 
-    private void saveRefreshToken(String username, String token) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        // Delete existing refresh tokens for this user
-        refreshTokenRepository.deleteByUser(user);
-
-        // Create new refresh token
-        RefreshToken refreshToken = new RefreshToken();
-        refreshToken.setToken(token);
-        refreshToken.setUser(user);
-        refreshToken.setExpiryDate(LocalDateTime.now().plusSeconds(tokenProvider.getRefreshTokenExpirationInMs() / 1000));
-
-        refreshTokenRepository.save(refreshToken);
+    /**
+     * Sostituisce il refresh token dell'utente con un solo UPDATE; INSERT solo se non ne ha ancora uno
+     */
+    private void saveRefreshToken(User user, String token) {
+        LocalDateTime expiryDate = refreshTokenExpiry();
+        byte[] tokenHash = RefreshTokenGenerator.digest(token);
+        if (refreshTokenRepository.replaceToken(user.getId(), tokenHash, expiryDate, LocalDateTime.now()) == 0) {
+            refreshTokenRepository.save(new RefreshToken(tokenHash, user, expiryDate));
+        }
     }
 
-    private void updateLastLogin(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        user.setLastLogin(LocalDateTime.now());
-        userRepository.save(user);
+    private LocalDateTime refreshTokenExpiry() {
+        return LocalDateTime.now().plusSeconds(tokenProvider.getRefreshTokenExpirationInMs() / 1000);
     }
 
+    /**
+     * Firma, scadenza e revoca (set Redis di TokenRevocationService)
+     */
     public boolean validateToken(String token) {
-        return tokenProvider.validateToken(token);
+        return validClaims(token) != null;
+    }
+
+    /**
+     * Claims del token valido e non revocato, altrimenti null; il token e' analizzato una sola volta
+     */
+    public Claims validClaims(String token) {
+        Claims claims = tokenProvider.parseClaims(token);
+        return claims != null && !tokenRevocationService.isRevoked(claims) ? claims : null;
     }
 
     public String getUsernameFromToken(String token) {
@@ -4,13 +4,14 @@ import com.springmon.auth.entity.User;
 import com.springmon.auth.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     @Autowired
     private UserRepository userRepository;
@@ -18,7 +19,8 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Override
     @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        // Utente e ruoli in una sola query: e' anche il principal riusato da AuthService al login
+        User user = userRepository.findByUsernameWithRoles(username)
                 .orElseThrow(() -> 
                     new UsernameNotFoundException("User not found with username: " + username)
                 );
@@ -35,4 +37,16 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         return user;
     }
+
+    /**
+     * Chiamato da DaoAuthenticationProvider dopo un login riuscito se l'hash salvato va ricodificato
+     * (senza prefisso {bcrypt} o con cost inferiore a quello corrente). UPDATE mirato della sola
+     * colonna: l'entita' in memoria, usata solo per la risposta del login, resta con l'hash precedente.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(((User) user).getId(), newPassword);
+        return user;
+    }
 }
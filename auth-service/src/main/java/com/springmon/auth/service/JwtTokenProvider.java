@@ -2,6 +2,7 @@ package com.springmon.auth.service;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -9,6 +10,7 @@ import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.UUID;
 
 @Component
 public class JwtTokenProvider {    @Value("${jwt.secret:mySecretKey}")
@@ -20,8 +22,17 @@ public class JwtTokenProvider {    @Value("${jwt.secret:mySecretKey}")
     @Value("${jwt.refresh-expiration:604800000}") // 7 days in milliseconds
     private long refreshTokenExpirationInMs;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    private SecretKey signingKey;
+
+    private JwtParser jwtParser;
+
+    /**
+     * Costruisce una sola volta chiave HMAC e parser
+     */
+    @PostConstruct
+    public void init() {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.jwtParser = Jwts.parser().verifyWith(signingKey).build();
     }
 
     public String generateToken(Authentication authentication) {
@@ -32,42 +43,32 @@ public class JwtTokenProvider {    @Value("${jwt.secret:mySecretKey}")
     public String generateTokenFromUsername(String username) {
         Date expiryDate = new Date(System.currentTimeMillis() + jwtExpirationInMs);
 
+        // jti: identifica il singolo access token per la revoca
         return Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(username)
                 .issuedAt(new Date())
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
-                .compact();
-    }
-
-    public String generateRefreshToken(String username) {
-        Date expiryDate = new Date(System.currentTimeMillis() + refreshTokenExpirationInMs);
-
-        return Jwts.builder()
-                .subject(username)
-                .issuedAt(new Date())
-                .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        Claims claims = jwtParser.parseSignedClaims(token).getPayload();
 
         return claims.getSubject();
     }
 
     public boolean validateToken(String authToken) {
+        return parseClaims(authToken) != null;
+    }
+
+    /**
+     * Claims del token se firma e scadenza sono valide, altrimenti null
+     */
+    public Claims parseClaims(String authToken) {
         try {
-            Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(authToken);
-            return true;
+            return jwtParser.parseSignedClaims(authToken).getPayload();
         } catch (SecurityException ex) {
             System.err.println("Invalid JWT signature");
         } catch (MalformedJwtException ex) {
@@ -79,15 +80,18 @@ public class JwtTokenProvider {    @Value("${jwt.secret:mySecretKey}")
         } catch (IllegalArgumentException ex) {
             System.err.println("JWT claims string is empty");
         }
-        return false;
+        return null;
+    }
+
+    /**
+     * Parser thread-safe, costruito una sola volta in init(): per validare molti token
+     */
+    public JwtParser parser() {
+        return jwtParser;
     }
 
     public Date getExpirationDateFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        Claims claims = jwtParser.parseSignedClaims(token).getPayload();
 
         return claims.getExpiration();
     }
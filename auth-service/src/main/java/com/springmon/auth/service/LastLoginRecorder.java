@@ -0,0 +1,200 @@
+package com.springmon.auth.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ultimo accesso in write-behind: il login registra il timestamp in memoria (per utente vince il piu'
+ * recente) e un thread dedicato lo scrive ogni flush-interval-ms, o prima se gli utenti in attesa
+ * arrivano a max-pending. Un utente che accede piu' volte nella stessa finestra costa una sola scrittura.
+ * Su PostgreSQL ogni lotto e' un solo UPDATE ... FROM (VALUES ...); sugli altri database un batch JDBC.
+ */
+@Service
+public class LastLoginRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(LastLoginRecorder.class);
+
+    @Value("${auth.last-login.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${auth.last-login.max-pending:1000}")
+    private int maxPending;
+
+    @Value("${auth.last-login.batch-size:500}")
+    private int batchSize;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private Thread worker;
+    private volatile boolean running;
+
+    private Timer flushTimer;
+    private Counter written;
+    private Counter failed;
+
+    // Stato del solo thread di scrittura
+    private Boolean postgres;
+    private boolean failureLogged;
+
+    public LastLoginRecorder(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        Gauge.builder("auth.lastlogin.pending", pending, Map::size)
+                .description("Utenti con un ultimo accesso non ancora scritto")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("auth.lastlogin.flush")
+                .description("Durata della scrittura di un lotto di ultimi accessi")
+                .register(meterRegistry);
+        written = counter("written");
+        failed = counter("failed");
+
+        running = true;
+        worker = new Thread(this::run, "last-login-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Scrive quanto e' ancora in attesa prima che il datasource venga chiuso
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(worker);
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Registra l'accesso senza I/O; con max-pending utenti in attesa anticipa la scrittura
+     */
+    public void record(Long userId, LocalDateTime loginTime) {
+        pending.merge(userId, loginTime, (current, next) -> next.isAfter(current) ? next : current);
+        if (pending.size() >= maxPending && flushRequested.compareAndSet(false, true)) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    private void run() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (running) {
+            LockSupport.parkNanos(intervalNanos);
+            flushRequested.set(false);
+            flush();
+        }
+        flush();
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<Object[]> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        for (Long userId : pending.keySet()) {
+            LocalDateTime loginTime = pending.remove(userId);
+            if (loginTime == null) {
+                continue;
+            }
+            batch.add(new Object[]{userId, Timestamp.valueOf(loginTime)});
+            if (batch.size() == batchSize) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void write(List<Object[]> batch) {
+        try {
+            if (isPostgres()) {
+                jdbcTemplate.update(valuesUpdate(batch.size()), flatten(batch));
+            } else {
+                jdbcTemplate.batchUpdate(
+                        "UPDATE users SET last_login = ? WHERE id = ? AND (last_login IS NULL OR last_login < ?)",
+                        batch.stream().map(row -> new Object[]{row[1], row[0], row[1]}).toList());
+            }
+            written.increment(batch.size());
+            failureLogged = false;
+        } catch (DataAccessException e) {
+            failed.increment(batch.size());
+            if (!failureLogged) {
+                logger.warn("Writing {} last-login timestamps failed: {}", batch.size(), e.getMessage());
+                failureLogged = true;
+            }
+            // Di nuovo in attesa per il prossimo giro, senza sovrascrivere accessi piu' recenti
+            for (Object[] row : batch) {
+                pending.merge((Long) row[0], ((Timestamp) row[1]).toLocalDateTime(),
+                        (current, previous) -> current.isAfter(previous) ? current : previous);
+            }
+        }
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = "PostgreSQL".equals(jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+
+    /**
+     * La condizione su last_login evita che un'istanza con dati vecchi sovrascriva un accesso piu' recente
+     */
+    private static String valuesUpdate(int rows) {
+        StringBuilder sql = new StringBuilder("UPDATE users AS u SET last_login = v.login_time FROM (VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "" : ", ").append("(CAST(? AS BIGINT), CAST(? AS TIMESTAMP))");
+        }
+        return sql.append(") AS v(id, login_time) WHERE u.id = v.id")
+                .append(" AND (u.last_login IS NULL OR u.last_login < v.login_time)")
+                .toString();
+    }
+
+    private static Object[] flatten(List<Object[]> batch) {
+        Object[] args = new Object[batch.size() * 2];
+        for (int i = 0; i < batch.size(); i++) {
+            args[2 * i] = batch.get(i)[0];
+            args[2 * i + 1] = batch.get(i)[1];
+        }
+        return args;
+    }
+
+    private Counter counter(String result) {
+        return Counter.builder("auth.lastlogin.writes")
+                .description("Ultimi accessi scritti sul database, per esito")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
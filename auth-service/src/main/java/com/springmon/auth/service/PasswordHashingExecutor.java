@@ -0,0 +1,161 @@
+package com.springmon.auth.service;
+
+import com.springmon.common.tracing.Span;
+import com.springmon.common.tracing.Tracer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pool dedicato all'hashing delle password (BCrypt encode e matches): thread pari ai core e coda
+ * limitata, cosi' un picco di tentativi di login non satura la CPU e non rallenta /validate e /health.
+ * Sul pool gira solo l'hash: query, transazione e firma del JWT restano sul thread della richiesta,
+ * che attende l'hash. Con la coda piena l'hash e' rifiutato subito (RejectedExecutionException,
+ * risposta 503) invece di accumulare attesa.
+ */
+@Service
+public class PasswordHashingExecutor {
+
+    @Value("${auth.password-hashing.threads:0}")
+    private int threads;
+
+    @Value("${auth.password-hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    private final Tracer tracer;
+    private final MeterRegistry meterRegistry;
+
+    private ThreadPoolExecutor executor;
+
+    private Timer queueWait;
+
+    private Timer encodeExecution;
+    private Timer matchesExecution;
+    private Counter encodeRejected;
+    private Counter matchesRejected;
+
+    public PasswordHashingExecutor(Tracer tracer, MeterRegistry meterRegistry) {
+        this.tracer = tracer;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        queueWait = Timer.builder("auth.password.hashing.wait")
+                .description("Attesa in coda prima dell'esecuzione sul pool di hashing")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.hashing.queue", executor, pool -> pool.getQueue().size())
+                .description("Operazioni in coda sul pool di hashing")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Thread del pool di hashing occupati")
+                .register(meterRegistry);
+        encodeExecution = executionTimer("encode");
+        matchesExecution = executionTimer("matches");
+        encodeRejected = rejectedCounter("encode");
+        matchesRejected = rejectedCounter("matches");
+    }
+
+    private Timer executionTimer(String operation) {
+        return Timer.builder("auth.password.hashing.execution")
+                .description("Durata dell'hash BCrypt sul pool di hashing")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private Counter rejectedCounter(String operation) {
+        return Counter.builder("auth.password.hashing.rejected")
+                .description("Hash rifiutati con la coda del pool di hashing piena")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Encoder che esegue encode e matches del delegate sul pool e ne attende il risultato.
+     * Lancia RejectedExecutionException se la coda e' piena.
+     */
+    public PasswordEncoder wrap(PasswordEncoder delegate) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return execute(() -> delegate.encode(rawPassword), encodeExecution, encodeRejected);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return execute(() -> delegate.matches(rawPassword, encodedPassword), matchesExecution, matchesRejected);
+            }
+
+            @Override
+            public boolean upgradeEncoding(String encodedPassword) {
+                return delegate.upgradeEncoding(encodedPassword);
+            }
+        };
+    }
+
+    /**
+     * Esegue l'hash sul pool e attende il risultato; lo span corrente e' propagato al thread del pool
+     */
+    private <T> T execute(Supplier<T> hash, Timer execution, Counter rejected) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Span parent = tracer.currentSpan();
+        long submittedNanos = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startNanos = System.nanoTime();
+                queueWait.record(startNanos - submittedNanos, TimeUnit.NANOSECONDS);
+                Span previous = tracer.makeCurrent(parent);
+                try {
+                    future.complete(hash.get());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    execution.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    tracer.restoreCurrent(previous);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
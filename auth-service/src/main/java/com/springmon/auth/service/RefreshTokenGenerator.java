@@ -0,0 +1,42 @@
+package com.springmon.auth.service;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Refresh token opachi: 256 bit casuali in Base64 URL-safe (43 caratteri), senza firma ne' claim.
+ * Sul database si salva solo lo SHA-256 (32 byte): chi legge la tabella non ottiene token utilizzabili
+ * e la ricerca al refresh e' un confronto su una chiave a lunghezza fissa.
+ */
+@Component
+public class RefreshTokenGenerator {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final SecureRandom random = new SecureRandom();
+
+    public String generate() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return ENCODER.encodeToString(bytes);
+    }
+
+    /**
+     * Digest da salvare e da cercare; vale anche per i refresh token JWT emessi prima del cambio,
+     * migrati con sha256(token) (docker/postgres/migrations)
+     */
+    public static byte[] digest(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.springmon.auth.service;
+
+import com.springmon.auth.dto.TokenValidationResult;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validazione di molti token in parallelo su un pool limitato. I token sono divisi in blocchi
+ * di chunk-size: i risultati arrivano nell'ordine di input un blocco alla volta e al massimo
+ * due blocchi per thread restano in memoria, anche se chi riceve i risultati e' lento.
+ * Le revoche per utente si leggono da Redis una volta per batch, quelle per jti con un ZMSCORE per blocco.
+ */
+@Service
+public class TokenBatchValidator {
+
+    @Value("${auth.validate.batch.threads:0}")
+    private int threads;
+
+    @Value("${auth.validate.batch.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${auth.validate.batch.chunk-size:128}")
+    private int chunkSize;
+
+    @Value("${auth.validate.batch.max-tokens:10000}")
+    private int maxTokens;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Riceve i risultati di un blocco, nell'ordine dei token
+     */
+    @FunctionalInterface
+    public interface ResultSink {
+        void accept(TokenValidationResult[] results) throws IOException;
+    }
+
+    @PostConstruct
+    public void init() {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        // Coda piena: il blocco lo valida il thread della richiesta, che intanto non ne accoda altri
+        executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "token-validation-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    /**
+     * true se il batch e' abbastanza piccolo da validarlo in un solo blocco (risposta non in streaming)
+     */
+    public boolean isSingleChunk(List<String> tokens) {
+        return tokens.size() <= chunkSize;
+    }
+
+    /**
+     * Valida un batch piccolo nel thread corrente
+     */
+    public List<TokenValidationResult> validateAll(List<String> tokens) {
+        return Arrays.asList(validateChunk(jwtTokenProvider.parser(), tokenRevocationService.revokedUsers(), tokens));
+    }
+
+    /**
+     * Valida i token in parallelo passando a sink i risultati di ogni blocco in ordine di input
+     */
+    public void validate(List<String> tokens, ResultSink sink) throws IOException {
+        JwtParser parser = jwtTokenProvider.parser();
+        Map<String, Long> revokedUsers = tokenRevocationService.revokedUsers();
+        int window = executor.getMaximumPoolSize() * 2;
+        Deque<CompletableFuture<TokenValidationResult[]>> pending = new ArrayDeque<>();
+        int next = 0;
+        try {
+            while (next < tokens.size() || !pending.isEmpty()) {
+                while (next < tokens.size() && pending.size() < window) {
+                    List<String> chunk = tokens.subList(next, Math.min(next + chunkSize, tokens.size()));
+                    pending.add(CompletableFuture.supplyAsync(() -> validateChunk(parser, revokedUsers, chunk), executor));
+                    next += chunk.size();
+                }
+                sink.accept(pending.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Batch validation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Batch validation failed", e.getCause());
+        } finally {
+            // Client disconnesso o errore: i blocchi ancora in coda non servono piu'
+            pending.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private TokenValidationResult[] validateChunk(JwtParser parser, Map<String, Long> revokedUsers, List<String> tokens) {
+        TokenValidationResult[] results = new TokenValidationResult[tokens.size()];
+        // jti dei soli token validi, null per gli altri: un solo ZMSCORE per tutto il blocco
+        List<String> tokenIds = new ArrayList<>(results.length);
+        for (int i = 0; i < results.length; i++) {
+            String token = tokens.get(i);
+            Claims claims = null;
+            if (token == null || token.isBlank()) {
+                results[i] = TokenValidationResult.invalid();
+            } else {
+                try {
+                    claims = parser.parseSignedClaims(token).getPayload();
+                    results[i] = result(TokenRevocationService.isRevoked(revokedUsers, claims)
+                            ? TokenValidationResult.Status.REVOKED : TokenValidationResult.Status.VALID, claims);
+                } catch (ExpiredJwtException e) {
+                    // La firma e' gia' stata verificata: i claim del token scaduto sono affidabili
+                    results[i] = result(TokenValidationResult.Status.EXPIRED, e.getClaims());
+                } catch (JwtException | IllegalArgumentException e) {
+                    results[i] = TokenValidationResult.invalid();
+                }
+            }
+            tokenIds.add(results[i].getStatus() == TokenValidationResult.Status.VALID ? claims.getId() : null);
+        }
+        boolean[] revoked = tokenRevocationService.revokedTokens(tokenIds);
+        for (int i = 0; i < results.length; i++) {
+            if (revoked[i]) {
+                results[i] = new TokenValidationResult(TokenValidationResult.Status.REVOKED,
+                        results[i].getSubject(), results[i].getExpiresAt());
+            }
+        }
+        return results;
+    }
+
+    private static TokenValidationResult result(TokenValidationResult.Status status, Claims claims) {
+        Date expiration = claims.getExpiration();
+        return new TokenValidationResult(status, claims.getSubject(),
+                expiration != null ? Instant.ofEpochMilli(expiration.getTime()) : null);
+    }
+}
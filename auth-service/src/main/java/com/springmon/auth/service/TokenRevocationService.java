@@ -0,0 +1,134 @@
+package com.springmon.auth.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Revoca degli access token prima della scadenza. Le revoche stanno in due sorted set Redis
+ * con score = istante oltre il quale la voce non serve piu' (il token e' comunque scaduto):
+ * <ul>
+ *   <li>{@value #TOKENS_KEY}: member = jti del singolo token</li>
+ *   <li>{@value #USERS_KEY}: member = "notBefore:username", revoca i token dell'utente emessi fino a notBefore</li>
+ * </ul>
+ * Ogni revoca e' pubblicata su {@value #CHANNEL} come "token|user score member": il gateway
+ * la applica in memoria e rilegge i due set quando si (ri)connette. /validate e /validate/batch
+ * leggono gli stessi set a ogni chiamata.
+ */
+@Service
+public class TokenRevocationService {
+
+    public static final String TOKENS_KEY = "springmon:revoked:tokens";
+    public static final String USERS_KEY = "springmon:revoked:users";
+    public static final String CHANNEL = "springmon:revocations";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    /**
+     * Revoca il singolo access token fino alla sua scadenza; i token scaduti, non validi
+     * o emessi senza jti vengono ignorati
+     */
+    public void revokeToken(String token) {
+        Claims claims;
+        try {
+            claims = tokenProvider.parser().parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            // Scaduto o non valido: non c'e' niente da revocare
+            return;
+        }
+        if (claims.getId() == null || claims.getExpiration() == null) {
+            return;
+        }
+        publish(TOKENS_KEY, "token", claims.getId(), claims.getExpiration().getTime());
+    }
+
+    /**
+     * Revoca tutti gli access token dell'utente emessi fino a questo istante
+     */
+    public void revokeUser(String username) {
+        long now = System.currentTimeMillis();
+        publish(USERS_KEY, "user", now + ":" + username, now + tokenProvider.getJwtExpirationInMs());
+    }
+
+    /**
+     * true se il token (firma gia' verificata) e' revocato per jti o per utente
+     */
+    public boolean isRevoked(Claims claims) {
+        long now = System.currentTimeMillis();
+        if (claims.getId() != null) {
+            Double expiresAt = redisTemplate.opsForZSet().score(TOKENS_KEY, claims.getId());
+            if (expiresAt != null && expiresAt > now) {
+                return true;
+            }
+        }
+        return isRevoked(revokedUsers(), claims);
+    }
+
+    /**
+     * Revoche per utente ancora attive: username -> notBefore piu' recente.
+     * Un batch le legge una volta sola e le passa a {@link #isRevoked(Map, Claims)}
+     */
+    public Map<String, Long> revokedUsers() {
+        Set<ZSetOperations.TypedTuple<String>> tuples = redisTemplate.opsForZSet()
+                .rangeByScoreWithScores(USERS_KEY, System.currentTimeMillis(), Double.POSITIVE_INFINITY);
+        Map<String, Long> users = new HashMap<>();
+        if (tuples != null) {
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                String member = tuple.getValue();
+                int separator = member.indexOf(':');
+                if (separator > 0 && separator < member.length() - 1) {
+                    users.merge(member.substring(separator + 1), Long.parseLong(member.substring(0, separator)), Math::max);
+                }
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Revoca per utente: iat ha la precisione del secondo, un token emesso nello stesso secondo della revoca e' revocato
+     */
+    public static boolean isRevoked(Map<String, Long> revokedUsers, Claims claims) {
+        Long notBefore = revokedUsers.get(claims.getSubject());
+        return notBefore != null && claims.getIssuedAt() != null && claims.getIssuedAt().getTime() <= notBefore;
+    }
+
+    /**
+     * Per ogni jti (null ammesso) true se revocato, con un solo ZMSCORE
+     */
+    public boolean[] revokedTokens(List<String> tokenIds) {
+        boolean[] revoked = new boolean[tokenIds.size()];
+        List<String> ids = tokenIds.stream().filter(Objects::nonNull).toList();
+        if (ids.isEmpty()) {
+            return revoked;
+        }
+        List<Double> scores = redisTemplate.opsForZSet().score(TOKENS_KEY, ids.toArray());
+        long now = System.currentTimeMillis();
+        for (int i = 0, j = 0; i < revoked.length; i++) {
+            if (tokenIds.get(i) != null) {
+                Double expiresAt = scores != null ? scores.get(j) : null;
+                revoked[i] = expiresAt != null && expiresAt > now;
+                j++;
+            }
+        }
+        return revoked;
+    }
+
+    private void publish(String key, String type, String member, long expiresAtMillis) {
+        redisTemplate.opsForZSet().add(key, member, expiresAtMillis);
+        redisTemplate.opsForZSet().removeRangeByScore(key, Double.NEGATIVE_INFINITY, System.currentTimeMillis());
+        redisTemplate.convertAndSend(CHANNEL, type + " " + expiresAtMillis + " " + member);
+    }
+}
@@ -0,0 +1,46 @@
+package com.springmon.auth.tracing;
+
+import com.springmon.common.tracing.Span;
+import com.springmon.common.tracing.Tracer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Span attorno all'hashing delle password (BCrypt), per separarne il tempo
+ * da quello delle query nelle tracce di login e registrazione
+ */
+public class TracingPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+
+    private final Tracer tracer;
+
+    public TracingPasswordEncoder(PasswordEncoder delegate, Tracer tracer) {
+        this.delegate = delegate;
+        this.tracer = tracer;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        Span span = tracer.startSpan("PasswordEncoder.encode", Span.Kind.INTERNAL);
+        try {
+            return delegate.encode(rawPassword);
+        } finally {
+            span.end();
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        Span span = tracer.startSpan("PasswordEncoder.matches", Span.Kind.INTERNAL);
+        try {
+            return delegate.matches(rawPassword, encodedPassword);
+        } finally {
+            span.end();
+        }
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
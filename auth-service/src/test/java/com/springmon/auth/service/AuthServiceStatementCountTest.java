@@ -0,0 +1,158 @@
+package com.springmon.auth.service;
+
+import com.springmon.auth.dto.AuthResponse;
+import com.springmon.auth.dto.LoginRequest;
+import com.springmon.auth.dto.RegisterRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statement SQL per login e refresh, contati sul DataSource: includono anche la scrittura
+ * in write-behind dell'ultimo accesso, che passa da JdbcTemplate e non dalle statistiche di Hibernate.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class AuthServiceStatementCountTest {
+
+    private static final String PASSWORD = "password123";
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private CountingDataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * Lettura di utente e ruoli, UPDATE del refresh token e UPDATE dell'ultimo accesso
+     */
+    @Test
+    void loginRunsThreeStatements() throws InterruptedException {
+        register("login-user");
+        double written = lastLoginsWritten();
+
+        dataSource.reset();
+        AuthResponse response = authService.authenticateUser(new LoginRequest("login-user", PASSWORD));
+        awaitLastLoginsWritten(written + 1);
+
+        assertThat(response.getUsername()).isEqualTo("login-user");
+        assertThat(dataSource.statements()).isEqualTo(3);
+    }
+
+    /**
+     * Ricerca per digest (con utente e ruoli) e UPDATE della stessa riga
+     */
+    @Test
+    void refreshRunsTwoStatements() {
+        AuthResponse registered = register("refresh-user");
+
+        dataSource.reset();
+        AuthResponse response = authService.refreshToken(registered.getRefreshToken());
+
+        assertThat(response.getRefreshToken()).isNotEqualTo(registered.getRefreshToken());
+        assertThat(dataSource.statements()).isEqualTo(2);
+    }
+
+    private AuthResponse register(String username) {
+        return authService.registerUser(new RegisterRequest(username, username + "@springmon.local", PASSWORD));
+    }
+
+    private double lastLoginsWritten() {
+        return meterRegistry.get("auth.lastlogin.writes").tag("result", "written").counter().count();
+    }
+
+    private void awaitLastLoginsWritten(double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (lastLoginsWritten() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(lastLoginsWritten()).isEqualTo(expected);
+    }
+
+    @TestConfiguration
+    static class StatementCountingConfig {
+
+        @Bean
+        static BeanPostProcessor statementCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource && !(bean instanceof CountingDataSource)
+                            ? new CountingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    /**
+     * Conta gli statement preparati o creati sulle connessioni: un batch JDBC vale uno
+     */
+    static class CountingDataSource extends DelegatingDataSource {
+
+        private final AtomicInteger statements = new AtomicInteger();
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(super.getConnection(username, password));
+        }
+
+        int statements() {
+            return statements.get();
+        }
+
+        void reset() {
+            statements.set(0);
+        }
+
+        private Connection counting(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.equals("prepareStatement") || name.equals("prepareCall")
+                                || name.equals("createStatement")) {
+                            statements.incrementAndGet();
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,114 @@
+#!/usr/bin/env bash
+#
+# Confronta la concorrenza massima sostenibile del gateway in diverse modalita'
+# contro un auth-service simulato:
+#   blocking  motore RestTemplate/HttpClient su thread di piattaforma (default)
+#   reactive  motore WebClient/Reactor Netty
+#   virtual   motore bloccante con spring.threads.virtual.enabled=true (richiede Java 21+)
+#
+# Variabili: MODES, SCENARIO, CONCURRENCY, UPSTREAM_DELAY_MS, WARMUP_S, DURATION_S,
+#            P99_SLO_MS, STOP_ON_FAILURE, GATEWAY_PORT, STUB_PORT, GATEWAY_OPTS, SKIP_BUILD
+#
+set -euo pipefail
+
+ROOT_DIR="$(cd "$(dirname "$0")/.." && pwd)"
+cd "$ROOT_DIR"
+
+MODES=${MODES:-"blocking reactive"}
+SCENARIO=${SCENARIO:-profile}
+CONCURRENCY=${CONCURRENCY:-100,250,500,1000,2500,5000,10000,20000}
+UPSTREAM_DELAY_MS=${UPSTREAM_DELAY_MS:-100}
+WARMUP_S=${WARMUP_S:-5}
+DURATION_S=${DURATION_S:-20}
+P99_SLO_MS=${P99_SLO_MS:-1000}
+STOP_ON_FAILURE=${STOP_ON_FAILURE:-true}
+GATEWAY_PORT=${GATEWAY_PORT:-18080}
+STUB_PORT=${STUB_PORT:-18081}
+GATEWAY_OPTS=${GATEWAY_OPTS:-}
+
+BENCH_JAR=benchmarks/target/benchmarks.jar
+GATEWAY_JAR=gateway-service/target/gateway-service-1.0.0-SNAPSHOT-exec.jar
+LOG_DIR=benchmarks/target/load-test
+mkdir -p "$LOG_DIR"
+
+# Decine di migliaia di connessioni richiedono altrettanti file descriptor
+ulimit -n 65536 2>/dev/null || echo "warning: could not raise open files limit ($(ulimit -n))"
+
+if [ "${SKIP_BUILD:-false}" != "true" ]; then
+    mvn -B -q -pl gateway-service,benchmarks package -DskipTests
+fi
+
+STUB_PID=""
+GATEWAY_PID=""
+cleanup() {
+    [ -n "$GATEWAY_PID" ] && kill "$GATEWAY_PID" 2>/dev/null || true
+    [ -n "$STUB_PID" ] && kill "$STUB_PID" 2>/dev/null || true
+}
+trap cleanup EXIT
+
+java -cp "$BENCH_JAR" com.springmon.benchmarks.load.StubUpstream \
+    --port="$STUB_PORT" --delay-ms="$UPSTREAM_DELAY_MS" > "$LOG_DIR/stub.log" 2>&1 &
+STUB_PID=$!
+
+mode_options() {
+    case "$1" in
+        blocking) echo "--gateway.proxy.engine=blocking --spring.threads.virtual.enabled=false" ;;
+        reactive) echo "--gateway.proxy.engine=reactive --spring.threads.virtual.enabled=false" ;;
+        virtual)
+            if [ "$(java -XshowSettings:properties -version 2>&1 | awk -F'= ' '/java.specification.version/ {print $2}')" -lt 21 ]; then
+                echo "mode 'virtual' requires Java 21+" >&2
+                exit 1
+            fi
+            echo "--gateway.proxy.engine=blocking --spring.threads.virtual.enabled=true" ;;
+        *) echo "unknown mode $1 (blocking | reactive | virtual)" >&2; exit 1 ;;
+    esac
+}
+
+for mode in $MODES; do
+    echo "=== mode: $mode"
+    MODE_OPTS=$(mode_options "$mode")
+    # shellcheck disable=SC2086
+    java -jar "$GATEWAY_JAR" \
+        --server.port="$GATEWAY_PORT" \
+        --auth.service.url="http://127.0.0.1:$STUB_PORT" \
+        $MODE_OPTS \
+        --server.tomcat.max-connections=50000 \
+        --server.tomcat.accept-count=10000 \
+        --resilience4j.bulkhead.configs.default.max-concurrent-calls=100000 \
+        --gateway.rate-limit.enabled=false \
+        --gateway.cache.enabled=false \
+        --gateway.coalescing.enabled=false \
+        --gateway.hedging.enabled=false \
+        --gateway.revocation.enabled=false \
+        --resilience4j.circuitbreaker.configs.default.slow-call-duration-threshold=60s \
+        --logging.level.com.springmon.gateway=WARN \
+        --logging.level.org.springframework.security=WARN \
+        --logging.level.org.springframework.web=WARN \
+        $GATEWAY_OPTS > "$LOG_DIR/gateway-$mode.log" 2>&1 &
+    GATEWAY_PID=$!
+
+    for _ in $(seq 1 60); do
+        curl -sf "http://127.0.0.1:$GATEWAY_PORT/api/health" > /dev/null && break
+        sleep 1
+    done
+
+    java -cp "$BENCH_JAR" com.springmon.benchmarks.load.ProxyLoadTest \
+        --target="http://127.0.0.1:$GATEWAY_PORT" \
+        --label="$mode" \
+        --scenario="$SCENARIO" \
+        --concurrency="$CONCURRENCY" \
+        --warmup-s="$WARMUP_S" \
+        --duration-s="$DURATION_S" \
+        --p99-slo-ms="$P99_SLO_MS" \
+        --stop-on-failure="$STOP_ON_FAILURE" | tee "$LOG_DIR/result-$mode.txt"
+
+    kill "$GATEWAY_PID"
+    wait "$GATEWAY_PID" 2>/dev/null || true
+    GATEWAY_PID=""
+
+    # Punti di pinning rilevati dal monitor JFR (solo modalita' virtual)
+    grep -A15 "Virtual thread pinned" "$LOG_DIR/gateway-$mode.log" || true
+done
+
+echo "=== summary"
+grep -h '^RESULT' "$LOG_DIR"/result-*.txt
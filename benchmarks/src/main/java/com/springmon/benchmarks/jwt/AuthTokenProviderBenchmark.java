@@ -0,0 +1,76 @@
+package com.springmon.benchmarks.jwt;
+
+import com.springmon.auth.service.JwtTokenProvider;
+import com.springmon.auth.service.RefreshTokenGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emissione e validazione dei token in auth-service: access token JWT (JwtTokenProvider) e
+ * refresh token opachi (RefreshTokenGenerator, il digest e' la chiave di ricerca al refresh)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthTokenProviderBenchmark {
+
+    /**
+     * Lunghezza dell'username, quindi della dimensione del token
+     */
+    @Param({"8", "64", "256"})
+    private int usernameLength;
+
+    private JwtTokenProvider tokenProvider;
+    private RefreshTokenGenerator refreshTokenGenerator;
+    private String username;
+    private String accessToken;
+    private String refreshToken;
+
+    @Setup
+    public void setUp() {
+        tokenProvider = new JwtTokenProvider();
+        JwtFixtures.setField(tokenProvider, "jwtSecret", JwtFixtures.SECRET);
+        JwtFixtures.setField(tokenProvider, "jwtExpirationInMs", JwtFixtures.ONE_HOUR_MS);
+        JwtFixtures.setField(tokenProvider, "refreshTokenExpirationInMs", 7 * 24 * JwtFixtures.ONE_HOUR_MS);
+        tokenProvider.init();
+        refreshTokenGenerator = new RefreshTokenGenerator();
+
+        username = JwtFixtures.username(usernameLength);
+        accessToken = tokenProvider.generateTokenFromUsername(username);
+        refreshToken = refreshTokenGenerator.generate();
+    }
+
+    @Benchmark
+    public String generateTokenFromUsername() {
+        return tokenProvider.generateTokenFromUsername(username);
+    }
+
+    @Benchmark
+    public String generateRefreshToken() {
+        return refreshTokenGenerator.generate();
+    }
+
+    @Benchmark
+    public byte[] refreshTokenDigest() {
+        return RefreshTokenGenerator.digest(refreshToken);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return tokenProvider.validateToken(accessToken);
+    }
+}
@@ -0,0 +1,81 @@
+package com.springmon.benchmarks.jwt;
+
+import com.springmon.gateway.service.JwtValidationService;
+import com.springmon.gateway.service.TokenRevocations;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validazione dei token nel gateway (JwtValidationService).
+ * Il caso "cached" ripete lo stesso token, il caso "uncached" usa una cache di dimensione zero
+ * e misura quindi il costo pieno di parsing e verifica HMAC. Con revokedTokens > 0 il gateway conosce
+ * altrettante revoche (e una per utente su un altro utente): il controllo di revoca passa dal Bloom filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GatewayJwtValidationBenchmark {
+
+    @Param({"8", "256"})
+    private int usernameLength;
+
+    @Param({"0", "16"})
+    private int extraClaims;
+
+    @Param({"0", "10000"})
+    private int revokedTokens;
+
+    private JwtValidationService cachedService;
+    private JwtValidationService uncachedService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachedService = newService(10_000);
+        uncachedService = newService(0);
+        token = JwtFixtures.token(JwtFixtures.username(usernameLength), extraClaims);
+    }
+
+    private JwtValidationService newService(int cacheMaxSize) {
+        TokenRevocations revocations = new TokenRevocations(100_000);
+        long expiresAt = System.currentTimeMillis() + JwtFixtures.ONE_HOUR_MS;
+        for (int i = 0; i < revokedTokens; i++) {
+            revocations.revokeToken(UUID.randomUUID().toString(), expiresAt);
+        }
+        if (revokedTokens > 0) {
+            revocations.revokeUser("someone-else", System.currentTimeMillis(), expiresAt);
+        }
+
+        JwtValidationService service = new JwtValidationService(new SimpleMeterRegistry(), revocations);
+        JwtFixtures.setField(service, "jwtSecret", JwtFixtures.SECRET);
+        JwtFixtures.setField(service, "cacheMaxSize", cacheMaxSize);
+        service.init();
+        return service;
+    }
+
+    @Benchmark
+    public boolean validateTokenCached() {
+        return cachedService.validateToken(token);
+    }
+
+    @Benchmark
+    public boolean validateTokenUncached() {
+        return uncachedService.validateToken(token);
+    }
+}
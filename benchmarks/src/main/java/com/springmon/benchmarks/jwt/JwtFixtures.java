@@ -0,0 +1,69 @@
+package com.springmon.benchmarks.jwt;
+
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.util.ReflectionUtils;
+
+import javax.crypto.SecretKey;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Segreto e token condivisi dai benchmark JWT e dai load test
+ */
+public final class JwtFixtures {
+
+    static final String SECRET = "springmon_jwt_secret_key_2024_very_secure_random_string";
+
+    static final long ONE_HOUR_MS = 3_600_000L;
+
+    private JwtFixtures() {
+    }
+
+    static SecretKey signingKey() {
+        return Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Username di lunghezza fissa, usato per variare la dimensione del token
+     */
+    static String username(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + (i % 26)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Token firmato con il numero richiesto di claim aggiuntivi, il claim roles e un jti come quelli dell'auth-service
+     */
+    public static String token(String subject, int extraClaims) {
+        long now = System.currentTimeMillis();
+        JwtBuilder builder = Jwts.builder()
+                .id(UUID.randomUUID().toString())
+                .subject(subject)
+                .claim("roles", "ROLE_USER")
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + ONE_HOUR_MS));
+        for (int i = 0; i < extraClaims; i++) {
+            builder.claim("claim" + i, "value-" + i);
+        }
+        return builder.signWith(signingKey()).compact();
+    }
+
+    /**
+     * Imposta un campo privato (tipicamente iniettato da @Value) senza contesto Spring
+     */
+    static void setField(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        if (field == null) {
+            throw new IllegalStateException("Field " + name + " not found on " + target.getClass());
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
@@ -0,0 +1,75 @@
+package com.springmon.benchmarks.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Confronto tra il pattern attuale (Keys.hmacShaKeyFor + Jwts.parser().build() a ogni chiamata)
+ * e le varianti con chiave e parser riutilizzati
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtParserReuseBenchmark {
+
+    @Param({"8", "256"})
+    private int usernameLength;
+
+    @Param({"0", "4", "32"})
+    private int extraClaims;
+
+    private String token;
+    private SecretKey reusedKey;
+    private JwtParser reusedParser;
+
+    @Setup
+    public void setUp() {
+        token = JwtFixtures.token(JwtFixtures.username(usernameLength), extraClaims);
+        reusedKey = JwtFixtures.signingKey();
+        reusedParser = Jwts.parser().verifyWith(reusedKey).build();
+    }
+
+    @Benchmark
+    public Claims perCallKeyAndParser() {
+        SecretKey key = Keys.hmacShaKeyFor(JwtFixtures.SECRET.getBytes(StandardCharsets.UTF_8));
+        return Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    @Benchmark
+    public Claims reusedKeyPerCallParser() {
+        return Jwts.parser()
+                .verifyWith(reusedKey)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    @Benchmark
+    public Claims reusedParser() {
+        return reusedParser.parseSignedClaims(token).getPayload();
+    }
+}
@@ -0,0 +1,97 @@
+package com.springmon.benchmarks.jwt;
+
+import com.springmon.gateway.service.InternalIdentitySigner;
+import com.springmon.gateway.service.VerifiedClaims;
+import com.springmon.user.config.InternalIdentityVerifier;
+import com.springmon.user.config.JwtAuthenticationFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifica dell'identita' nel JwtAuthenticationFilter di user-service: il JWT (un solo parsing,
+ * metodo privato invocato tramite MethodHandle) e l'identita' firmata dal gateway che lo sostituisce
+ * sulle richieste inoltrate
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceJwtFilterBenchmark {
+
+    private static final String INTERNAL_IDENTITY_SECRET = "springmon_internal_identity_key_2024_change_me";
+
+    @Param({"8", "256"})
+    private int usernameLength;
+
+    @Param({"0", "16"})
+    private int extraClaims;
+
+    private JwtAuthenticationFilter filter;
+    private InternalIdentityVerifier verifier;
+    private String token;
+    private String identityHeader;
+
+    private MethodHandle parseToken;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        verifier = new InternalIdentityVerifier();
+        JwtFixtures.setField(verifier, "enabled", true);
+        JwtFixtures.setField(verifier, "secret", INTERNAL_IDENTITY_SECRET);
+        verifier.init();
+
+        filter = new JwtAuthenticationFilter();
+        JwtFixtures.setField(filter, "jwtSecret", JwtFixtures.SECRET);
+        JwtFixtures.setField(filter, "internalIdentityVerifier", verifier);
+        filter.init();
+
+        String username = JwtFixtures.username(usernameLength);
+        token = JwtFixtures.token(username, extraClaims);
+
+        // Asserzione come la produce il gateway per lo stesso utente (scadenza oltre la durata del benchmark)
+        InternalIdentitySigner signer = new InternalIdentitySigner();
+        JwtFixtures.setField(signer, "secret", INTERNAL_IDENTITY_SECRET);
+        JwtFixtures.setField(signer, "ttlMs", JwtFixtures.ONE_HOUR_MS);
+        signer.init();
+        long now = System.currentTimeMillis();
+        identityHeader = signer.sign(new VerifiedClaims(username, "ROLE_USER", now, now + JwtFixtures.ONE_HOUR_MS,
+                UUID.randomUUID().toString()), UUID.randomUUID().toString());
+
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(JwtAuthenticationFilter.class, MethodHandles.lookup());
+        parseToken = lookup.findVirtual(JwtAuthenticationFilter.class, "parseToken",
+                MethodType.methodType(InternalIdentityVerifier.Identity.class, String.class));
+    }
+
+    /**
+     * Richiesta senza identita' interna: firma, scadenza, username e ruoli dal JWT
+     */
+    @Benchmark
+    public InternalIdentityVerifier.Identity verifyJwt() throws Throwable {
+        return (InternalIdentityVerifier.Identity) parseToken.invokeExact(filter, token);
+    }
+
+    /**
+     * Richiesta inoltrata dal gateway: solo HMAC sul layout binario
+     */
+    @Benchmark
+    public InternalIdentityVerifier.Identity verifyInternalIdentity() {
+        return verifier.verify(identityHeader);
+    }
+}
@@ -0,0 +1,60 @@
+package com.springmon.benchmarks.load;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Opzioni da riga di comando nel formato --chiave=valore
+ */
+final class LoadTestArgs {
+
+    private final Map<String, String> values;
+
+    private LoadTestArgs(Map<String, String> values) {
+        this.values = values;
+    }
+
+    static LoadTestArgs parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Invalid option " + arg + ", expected --name=value");
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return new LoadTestArgs(values);
+    }
+
+    String get(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    int getInt(String name, int defaultValue) {
+        String value = values.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    long getLong(String name, long defaultValue) {
+        String value = values.get(name);
+        return value != null ? Long.parseLong(value) : defaultValue;
+    }
+
+    double getDouble(String name, double defaultValue) {
+        String value = values.get(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    boolean getBoolean(String name, boolean defaultValue) {
+        String value = values.get(name);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+
+    int[] getInts(String name, String defaultValue) {
+        return Arrays.stream(get(name, defaultValue).split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+    }
+}
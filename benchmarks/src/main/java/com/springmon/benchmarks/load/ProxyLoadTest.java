@@ -0,0 +1,183 @@
+package com.springmon.benchmarks.load;
+
+import com.springmon.benchmarks.jwt.JwtFixtures;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test a ciclo chiuso del proxy del gateway: per ogni livello di concorrenza N,
+ * N utenti virtuali inviano richieste una dopo l'altra per la durata indicata.
+ * Un livello e' sostenibile se error rate e p99 restano entro le soglie;
+ * alla fine viene riportata la concorrenza massima sostenibile.
+ * <p>
+ * Il client e' non bloccante (Reactor Netty), quindi regge decine di migliaia
+ * di connessioni aperte con pochi thread.
+ * <p>
+ * Opzioni: --target, --scenario (profile | login), --concurrency (lista separata da virgole),
+ * --warmup-s, --duration-s, --timeout-ms, --p99-slo-ms, --max-error-rate, --stop-on-failure, --label
+ */
+public final class ProxyLoadTest {
+
+    private static final String LOGIN_BODY = "{\"username\":\"loadtest\",\"password\":\"loadtest\"}";
+
+    private ProxyLoadTest() {
+    }
+
+    public static void main(String[] args) {
+        LoadTestArgs options = LoadTestArgs.parse(args);
+        String target = options.get("target", "http://127.0.0.1:8080");
+        String scenario = options.get("scenario", "profile");
+        int[] levels = options.getInts("concurrency", "100,250,500,1000,2500,5000,10000,20000");
+        long warmupS = options.getLong("warmup-s", 5);
+        long durationS = options.getLong("duration-s", 20);
+        long timeoutMs = options.getLong("timeout-ms", 10000);
+        long p99SloMs = options.getLong("p99-slo-ms", 1000);
+        double maxErrorRate = options.getDouble("max-error-rate", 0.01);
+        boolean stopOnFailure = options.getBoolean("stop-on-failure", true);
+        String label = options.get("label", target);
+
+        System.out.printf("Load test [%s] scenario=%s target=%s warmup=%ds duration=%ds p99-slo=%dms max-error-rate=%.2f%%%n",
+                label, scenario, target, warmupS, durationS, p99SloMs, maxErrorRate * 100);
+        System.out.printf("%12s %12s %10s %10s %10s %10s %9s  %s%n",
+                "concurrency", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors", "sustainable");
+
+        int maxSustainable = 0;
+        for (int concurrency : levels) {
+            LevelResult result = runLevel(target, scenario, concurrency, warmupS, durationS, timeoutMs);
+            boolean sustainable = result.errorRate() <= maxErrorRate
+                    && result.percentileMs(99.0) <= p99SloMs;
+            System.out.printf("%12d %12.0f %10.1f %10.1f %10.1f %10.1f %8.2f%%  %s%n",
+                    concurrency, result.throughput(), result.percentileMs(50.0), result.percentileMs(99.0),
+                    result.percentileMs(99.9), result.maxMs(), result.errorRate() * 100, sustainable ? "yes" : "no");
+
+            if (sustainable) {
+                maxSustainable = concurrency;
+            } else if (stopOnFailure) {
+                break;
+            }
+        }
+
+        System.out.printf("RESULT %s max-sustainable-concurrency=%d%n", label, maxSustainable);
+    }
+
+    private static LevelResult runLevel(String target, String scenario, int concurrency,
+                                        long warmupS, long durationS, long timeoutMs) {
+        ConnectionProvider provider = ConnectionProvider.builder("load-" + concurrency)
+                .maxConnections(concurrency)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        HttpClient client = HttpClient.create(provider)
+                .baseUrl(target)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) Math.min(timeoutMs, Integer.MAX_VALUE))
+                .responseTimeout(Duration.ofMillis(timeoutMs));
+        Mono<Integer> request = request(client, scenario);
+
+        long maxTrackableMicros = TimeUnit.MILLISECONDS.toMicros(timeoutMs) * 2;
+        Recorder recorder = new Recorder(maxTrackableMicros, 3);
+        LongAdder succeeded = new LongAdder();
+        LongAdder failed = new LongAdder();
+
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupS);
+        long measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(durationS);
+
+        try {
+            Flux.range(0, concurrency)
+                    .flatMap(user -> Mono.defer(() -> {
+                        long start = System.nanoTime();
+                        return request
+                                .onErrorReturn(-1)
+                                .doOnNext(status -> {
+                                    if (start < measureFrom) {
+                                        return;
+                                    }
+                                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+                                    recorder.recordValue(Math.max(1, Math.min(micros, maxTrackableMicros)));
+                                    if (status >= 200 && status < 300) {
+                                        succeeded.increment();
+                                    } else {
+                                        failed.increment();
+                                    }
+                                });
+                    }).repeat(() -> System.nanoTime() < measureUntil), concurrency)
+                    .blockLast();
+        } finally {
+            provider.disposeLater().block();
+        }
+
+        return new LevelResult(recorder.getIntervalHistogram(), succeeded.sum(), failed.sum(), durationS);
+    }
+
+    /**
+     * Richiesta dello scenario: restituisce lo status HTTP dopo aver consumato il body
+     */
+    private static Mono<Integer> request(HttpClient client, String scenario) {
+        switch (scenario) {
+            case "profile": {
+                String bearer = "Bearer " + JwtFixtures.token("loadtest", 0);
+                return client.headers(h -> h.set(HttpHeaderNames.AUTHORIZATION, bearer))
+                        .get()
+                        .uri("/api/user/profile")
+                        .responseSingle((response, body) -> body.asString()
+                                .defaultIfEmpty("")
+                                .map(ignored -> response.status().code()));
+            }
+            case "login":
+                return client.headers(h -> h.set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON))
+                        .post()
+                        .uri("/api/auth/login")
+                        .send(ByteBufFlux.fromString(Mono.just(LOGIN_BODY)))
+                        .responseSingle((response, body) -> body.asString()
+                                .defaultIfEmpty("")
+                                .map(ignored -> response.status().code()));
+            default:
+                throw new IllegalArgumentException("Unknown scenario " + scenario + ", expected profile or login");
+        }
+    }
+
+    /**
+     * Risultato di un livello di concorrenza (solo la finestra di misura, warmup escluso)
+     */
+    private static final class LevelResult {
+
+        private final Histogram latencyMicros;
+        private final long succeeded;
+        private final long failed;
+        private final long durationS;
+
+        LevelResult(Histogram latencyMicros, long succeeded, long failed, long durationS) {
+            this.latencyMicros = latencyMicros;
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.durationS = durationS;
+        }
+
+        double throughput() {
+            return (double) succeeded / durationS;
+        }
+
+        double errorRate() {
+            long total = succeeded + failed;
+            return total == 0 ? 1.0 : (double) failed / total;
+        }
+
+        double percentileMs(double percentile) {
+            return latencyMicros.getValueAtPercentile(percentile) / 1000.0;
+        }
+
+        double maxMs() {
+            return latencyMicros.getMaxValue() / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.springmon.benchmarks.load;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Auth-service simulato per i load test del gateway: risponde agli endpoint proxati
+ * dopo una latenza fissa, senza bloccare thread, cosi' il collo di bottiglia resta il gateway.
+ * <p>
+ * Opzioni: --port (default 18081), --delay-ms (default 100)
+ */
+public final class StubUpstream {
+
+    private static final byte[] TOKEN_BODY =
+            "{\"accessToken\":\"stub-access-token\",\"refreshToken\":\"stub-refresh-token\",\"tokenType\":\"Bearer\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] PROFILE_BODY =
+            "{\"username\":\"loadtest\",\"email\":\"loadtest@springmon.local\",\"roles\":[\"ROLE_USER\"]}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] HEALTH_BODY = "{\"status\":\"UP\"}".getBytes(StandardCharsets.UTF_8);
+
+    private StubUpstream() {
+    }
+
+    public static void main(String[] args) {
+        LoadTestArgs options = LoadTestArgs.parse(args);
+        int port = options.getInt("port", 18081);
+        Duration delay = Duration.ofMillis(options.getLong("delay-ms", 100));
+
+        DisposableServer server = HttpServer.create()
+                .host("0.0.0.0")
+                .port(port)
+                .route(routes -> routes
+                        .post("/api/auth/{action}", (request, response) -> request.receive().then()
+                                .then(Mono.delay(delay))
+                                .then(json(response, TOKEN_BODY)))
+                        .get("/api/user/profile", (request, response) -> Mono.delay(delay)
+                                .then(json(response, PROFILE_BODY)))
+                        .get("/api/health", (request, response) -> json(response, HEALTH_BODY)))
+                .bindNow();
+
+        System.out.printf("Stub upstream listening on port %d (delay %d ms)%n", server.port(), delay.toMillis());
+        server.onDispose().block();
+    }
+
+    private static Mono<Void> json(HttpServerResponse response, byte[] body) {
+        return response
+                .header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+                .header(HttpHeaderNames.CONTENT_LENGTH, Integer.toString(body.length))
+                .sendByteArray(Mono.just(body))
+                .then();
+    }
+}
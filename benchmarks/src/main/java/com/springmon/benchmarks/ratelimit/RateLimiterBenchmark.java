@@ -0,0 +1,72 @@
+package com.springmon.benchmarks.ratelimit;
+
+import com.springmon.gateway.filter.RateLimiter;
+import com.springmon.gateway.routing.RateLimit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Check del rate limiter del gateway con tutti i core.
+ * "perThread": ogni thread e' un client diverso (nessuna contesa sul bucket);
+ * "shared": tutti i thread sullo stesso bucket (CAS contesa). Con il limite "low" quasi
+ * tutte le richieste sono rifiutate, con "high" sono tutte ammesse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(Threads.MAX)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final String ROUTE_ID = "user-profile";
+
+    @Param({"perThread", "shared"})
+    private String clients;
+
+    @Param({"low", "high"})
+    private String limit;
+
+    private RateLimiter rateLimiter;
+    private RateLimit rateLimit;
+
+    private final AtomicInteger clientIds = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        rateLimiter = new RateLimiter(100_000);
+        rateLimit = "low".equals(limit) ? new RateLimit(10, 20) : new RateLimit(1e9, 1_000_000);
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        String key;
+
+        @Setup
+        public void setUp(RateLimiterBenchmark benchmark) {
+            key = "perThread".equals(benchmark.clients)
+                    ? "sub:user" + benchmark.clientIds.incrementAndGet()
+                    : "sub:shared";
+        }
+    }
+
+    @Benchmark
+    public long tryAcquire(Client client) {
+        return rateLimiter.tryAcquire(ROUTE_ID, client.key, rateLimit, System.nanoTime());
+    }
+}
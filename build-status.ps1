@@ -25,6 +25,12 @@ try {
     Write-Host "⚠️  Maven non trovato - useremo JAR esistenti" -ForegroundColor Yellow
 }
 
+# Modulo condiviso (common) usato da tutti i servizi: va installato prima di compilarli
+if ($mavenAvailable) {
+    Write-Host "`n📦 Installazione modulo common..." -ForegroundColor Cyan
+    mvn clean install -DskipTests -pl common -am
+}
+
 # Array dei servizi da compilare
 $services = @("gateway-service", "auth-service", "user-service")
 
@@ -82,7 +88,7 @@ Write-Host "`n🎯 Riepilogo finale:" -ForegroundColor Yellow
 Write-Host "==================" -ForegroundColor Yellow
 
 foreach ($service in $services) {
-    $jarPath = "$service/target/$service-1.0.0-SNAPSHOT.jar"
+    $jarPath = "$service/target/$service-1.0.0-SNAPSHOT-exec.jar"
     if (Test-Path $jarPath) {
         $jarInfo = Get-Item $jarPath
         $age = (Get-Date) - $jarInfo.LastWriteTime
@@ -0,0 +1,118 @@
+package com.springmon.common.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Con i virtual thread attivi ascolta via JFR l'evento jdk.VirtualThreadPinned: un virtual thread
+ * che si blocca restando agganciato al carrier (tipicamente dentro un synchronized nel percorso JDBC/Hikari).
+ * Ogni punto di pinning viene loggato una volta con lo stack e misurato nel timer jvm.threads.virtual.pinned.
+ * Registrato da VirtualThreadPinningAutoConfiguration in ogni servizio.
+ */
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final int LOGGED_FRAMES = 15;
+
+    @Value("${virtual-threads.pinning.threshold-ms:20}")
+    private long thresholdMs;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+
+    private RecordingStream recordingStream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (Runtime.version().feature() < 21) {
+            logger.warn("spring.threads.virtual.enabled=true requires Java 21+, running on {}: platform threads in use",
+                    Runtime.version());
+            return;
+        }
+
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT)
+                .withThreshold(Duration.ofMillis(thresholdMs))
+                .withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+        logger.info("Virtual thread pinning monitor started (threshold {} ms)", thresholdMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        String site = pinningSite(stackTrace);
+
+        Timer.builder("jvm.threads.virtual.pinned")
+                .description("Time virtual threads stayed pinned to their carrier thread")
+                .tag("site", site)
+                .register(meterRegistry)
+                .record(event.getDuration());
+
+        if (reportedSites.add(site)) {
+            logger.warn("Virtual thread pinned for {} ms at {}{}",
+                    event.getDuration().toMillis(), site, formatFrames(stackTrace));
+        }
+    }
+
+    /**
+     * Primo frame fuori dal JDK: identifica la libreria o il codice che causa il pinning
+     */
+    private static String pinningSite(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName();
+            }
+        }
+        RecordedFrame top = stackTrace.getFrames().get(0);
+        return top.getMethod().getType().getName() + "." + top.getMethod().getName();
+    }
+
+    private static String formatFrames(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        for (int i = 0; i < Math.min(frames.size(), LOGGED_FRAMES); i++) {
+            RecordedFrame frame = frames.get(i);
+            sb.append("\n\tat ").append(frame.getMethod().getType().getName())
+                    .append('.').append(frame.getMethod().getName())
+                    .append(':').append(frame.getLineNumber());
+        }
+        return sb.toString();
+    }
+}
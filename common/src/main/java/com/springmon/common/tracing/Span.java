@@ -0,0 +1,141 @@
+package com.springmon.common.tracing;
+
+import java.util.Arrays;
+
+/**
+ * Operazione tracciata secondo W3C Trace Context (trace id 128 bit, span id 64 bit).
+ * Gli span figli di una traccia non campionata sono NOOP e non registrano nulla;
+ * lo span server viene creato sempre per propagare gli id e decidere il tail-keep.
+ */
+public final class Span {
+
+    public enum Kind {
+        INTERNAL(1), SERVER(2), CLIENT(3);
+
+        final int otlpCode;
+
+        Kind(int otlpCode) {
+            this.otlpCode = otlpCode;
+        }
+    }
+
+    static final Span NOOP = new Span(null, "", Kind.INTERNAL, 0, 0, 0, 0, false, 0);
+
+    private static final int INITIAL_ATTRIBUTES = 4;
+
+    private final Tracer tracer;
+    final String name;
+    final Kind kind;
+    final long traceIdHigh;
+    final long traceIdLow;
+    final long spanId;
+    final long parentSpanId;
+    final boolean sampled;
+
+    final long startEpochNanos;
+    final long startNanos;
+    long durationNanos;
+
+    /**
+     * Coppie chiave/valore (String o Long)
+     */
+    Object[] attributes;
+    int attributeCount;
+
+    boolean error;
+    String errorMessage;
+    boolean tailKept;
+
+    /**
+     * Span corrente del thread prima di questo, ripristinato da end()
+     */
+    Span previous;
+    boolean scoped;
+
+    Span(Tracer tracer, String name, Kind kind, long traceIdHigh, long traceIdLow,
+         long spanId, long parentSpanId, boolean sampled, long startEpochNanos) {
+        this.tracer = tracer;
+        this.name = name;
+        this.kind = kind;
+        this.traceIdHigh = traceIdHigh;
+        this.traceIdLow = traceIdLow;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.sampled = sampled;
+        this.startEpochNanos = startEpochNanos;
+        this.startNanos = tracer != null ? System.nanoTime() : 0;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    public Span setAttribute(String key, String value) {
+        if (tracer != null && value != null) {
+            add(key, value);
+        }
+        return this;
+    }
+
+    public Span setAttribute(String key, long value) {
+        if (tracer != null) {
+            add(key, value);
+        }
+        return this;
+    }
+
+    public Span recordError(Throwable throwable) {
+        if (tracer != null) {
+            error = true;
+            errorMessage = throwable.getClass().getName()
+                    + (throwable.getMessage() != null ? ": " + throwable.getMessage() : "");
+        }
+        return this;
+    }
+
+    public Span markError() {
+        if (tracer != null) {
+            error = true;
+        }
+        return this;
+    }
+
+    /**
+     * Chiude lo span: viene esportato se campionato, oppure se e' uno span server lento o in errore
+     */
+    public void end() {
+        if (tracer != null) {
+            durationNanos = System.nanoTime() - startNanos;
+            tracer.end(this);
+        }
+    }
+
+    /**
+     * Header traceparent con questo span come parent
+     */
+    public String traceparent() {
+        char[] chars = new char[55];
+        chars[0] = '0';
+        chars[1] = '0';
+        chars[2] = '-';
+        Tracer.hex(traceIdHigh, chars, 3);
+        Tracer.hex(traceIdLow, chars, 19);
+        chars[35] = '-';
+        Tracer.hex(spanId, chars, 36);
+        chars[52] = '-';
+        chars[53] = '0';
+        chars[54] = sampled ? '1' : '0';
+        return new String(chars);
+    }
+
+    private void add(String key, Object value) {
+        if (attributes == null) {
+            attributes = new Object[INITIAL_ATTRIBUTES * 2];
+        } else if (attributeCount * 2 == attributes.length) {
+            attributes = Arrays.copyOf(attributes, attributes.length * 2);
+        }
+        attributes[attributeCount * 2] = key;
+        attributes[attributeCount * 2 + 1] = value;
+        attributeCount++;
+    }
+}
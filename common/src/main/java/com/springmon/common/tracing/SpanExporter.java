@@ -0,0 +1,324 @@
+package com.springmon.common.tracing;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Esportazione asincrona degli span in formato OTLP/JSON: i thread delle richieste accodano
+ * senza bloccare (coda piena = span scartato), un thread dedicato invia a lotti.
+ * Destinazioni: "otlp" (POST verso un collector OTLP/HTTP), "file" (una riga JSON per lotto,
+ * utilizzabile offline, con rotazione per dimensione come l'access log del gateway) o "none".
+ */
+public class SpanExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpanExporter.class);
+
+    @Value("${tracing.exporter:file}")
+    private String type;
+
+    @Value("${tracing.exporter.file.path:traces/${spring.application.name:springmon}.jsonl}")
+    private String filePath;
+
+    @Value("${tracing.exporter.file.max-file-size-mb:100}")
+    private long maxFileSizeMb;
+
+    @Value("${tracing.exporter.file.max-history:5}")
+    private int maxHistory;
+
+    @Value("${tracing.exporter.otlp.endpoint:http://localhost:4318/v1/traces}")
+    private String otlpEndpoint;
+
+    @Value("${tracing.exporter.queue-capacity:4096}")
+    private int queueCapacity;
+
+    @Value("${tracing.exporter.batch-size:512}")
+    private int batchSize;
+
+    @Value("${tracing.exporter.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${spring.application.name:springmon}")
+    private String serviceName;
+
+    private final MeterRegistry meterRegistry;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private ArrayBlockingQueue<Span> queue;
+    private Thread worker;
+    private volatile boolean running;
+
+    private HttpClient httpClient;
+    private OutputStream fileOutput;
+    private long fileSize;
+    private boolean failureLogged;
+
+    private Counter exported;
+    private Counter dropped;
+    private Counter failed;
+
+    public SpanExporter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        exported = counter("exported");
+        dropped = counter("dropped");
+        failed = counter("failed");
+        if ("none".equals(type)) {
+            return;
+        }
+        if ("otlp".equals(type)) {
+            httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        } else if (!"file".equals(type)) {
+            throw new IllegalStateException("Unknown tracing.exporter: " + type);
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        worker = new Thread(this::run, "span-exporter");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (worker == null) {
+            return;
+        }
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+        closeFile();
+    }
+
+    /**
+     * Accoda lo span senza bloccare
+     */
+    void export(Span span) {
+        if (queue == null) {
+            return;
+        }
+        if (!queue.offer(span)) {
+            dropped.increment();
+        }
+    }
+
+    private void run() {
+        List<Span> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Span first = running ? queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS) : queue.poll();
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                // stop(): svuota la coda e termina
+                running = false;
+                continue;
+            }
+            try {
+                send(encode(batch));
+                exported.increment(batch.size());
+                failureLogged = false;
+            } catch (IOException | RuntimeException e) {
+                failed.increment(batch.size());
+                if (!failureLogged) {
+                    logger.warn("Span export to {} failed: {}", "otlp".equals(type) ? otlpEndpoint : filePath,
+                            e.toString());
+                    failureLogged = true;
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            batch.clear();
+        }
+    }
+
+    private void send(byte[] body) throws IOException, InterruptedException {
+        if (httpClient != null) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(otlpEndpoint))
+                    .timeout(Duration.ofSeconds(5))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                    .build();
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 300) {
+                throw new IOException("OTLP collector responded " + response.statusCode());
+            }
+            return;
+        }
+        Path path = Path.of(filePath);
+        try {
+            if (fileOutput == null) {
+                open(path);
+            } else if (fileSize > 0 && fileSize + body.length + 1 > maxFileSizeMb * 1024 * 1024) {
+                rotate(path);
+            }
+            fileOutput.write(body);
+            fileOutput.write('\n');
+            fileOutput.flush();
+            fileSize += body.length + 1;
+        } catch (IOException e) {
+            // Riaperto al prossimo lotto (file rimosso o disco pieno)
+            closeFile();
+            throw e;
+        }
+    }
+
+    private void open(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        fileOutput = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileSize = Files.size(path);
+    }
+
+    /**
+     * traces/x.jsonl -> x.jsonl.1 ... x.jsonl.N, il piu' vecchio viene eliminato
+     */
+    private void rotate(Path path) throws IOException {
+        closeFile();
+        String name = path.getFileName().toString();
+        for (int i = maxHistory - 1; i >= 1; i--) {
+            Path source = path.resolveSibling(name + "." + i);
+            if (Files.exists(source)) {
+                Files.move(source, path.resolveSibling(name + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxHistory > 0) {
+            Files.move(path, path.resolveSibling(name + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(path);
+        }
+        open(path);
+    }
+
+    private void closeFile() {
+        if (fileOutput != null) {
+            try {
+                fileOutput.close();
+            } catch (IOException e) {
+                logger.debug("Closing trace file failed", e);
+            }
+            fileOutput = null;
+        }
+    }
+
+    /**
+     * Lotto come ExportTraceServiceRequest OTLP/JSON (id in esadecimale, tempi in nanosecondi come stringhe)
+     */
+    private byte[] encode(List<Span> spans) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256 * spans.size());
+        try (JsonGenerator json = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("resourceSpans");
+            json.writeStartObject();
+            json.writeObjectFieldStart("resource");
+            json.writeArrayFieldStart("attributes");
+            writeAttribute(json, "service.name", serviceName);
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeArrayFieldStart("scopeSpans");
+            json.writeStartObject();
+            json.writeObjectFieldStart("scope");
+            json.writeStringField("name", "com.springmon.tracing");
+            json.writeEndObject();
+            json.writeArrayFieldStart("spans");
+            for (Span span : spans) {
+                writeSpan(json, span);
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeSpan(JsonGenerator json, Span span) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("traceId", Tracer.hex(span.traceIdHigh) + Tracer.hex(span.traceIdLow));
+        json.writeStringField("spanId", Tracer.hex(span.spanId));
+        if (span.parentSpanId != 0) {
+            json.writeStringField("parentSpanId", Tracer.hex(span.parentSpanId));
+        }
+        json.writeStringField("name", span.name);
+        json.writeNumberField("kind", span.kind.otlpCode);
+        json.writeStringField("startTimeUnixNano", Long.toString(span.startEpochNanos));
+        json.writeStringField("endTimeUnixNano", Long.toString(span.startEpochNanos + span.durationNanos));
+        json.writeArrayFieldStart("attributes");
+        for (int i = 0; i < span.attributeCount; i++) {
+            String key = (String) span.attributes[i * 2];
+            Object value = span.attributes[i * 2 + 1];
+            if (value instanceof Long number) {
+                json.writeStartObject();
+                json.writeStringField("key", key);
+                json.writeObjectFieldStart("value");
+                json.writeStringField("intValue", number.toString());
+                json.writeEndObject();
+                json.writeEndObject();
+            } else {
+                writeAttribute(json, key, (String) value);
+            }
+        }
+        if (span.tailKept) {
+            writeAttribute(json, "sampling.tail_kept", "true");
+        }
+        json.writeEndArray();
+        if (span.error) {
+            json.writeObjectFieldStart("status");
+            json.writeNumberField("code", 2);
+            if (span.errorMessage != null) {
+                json.writeStringField("message", span.errorMessage);
+            }
+            json.writeEndObject();
+        }
+        json.writeEndObject();
+    }
+
+    private static void writeAttribute(JsonGenerator json, String key, String value) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("key", key);
+        json.writeObjectFieldStart("value");
+        json.writeStringField("stringValue", value);
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+
+    private Counter counter(String result) {
+        return Counter.builder("tracing.spans")
+                .description("Span chiusi verso l'esportatore, per esito")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,239 @@
+package com.springmon.common.tracing;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracing distribuito con propagazione W3C traceparent e campionamento in testa:
+ * la decisione viene presa una volta per traccia (dal trace id, o dal flag del chiamante
+ * se parent-based) e le richieste non campionate non creano span figli.
+ * Lo span server di una richiesta non campionata viene esportato comunque se supera
+ * tail.slow-threshold-ms o termina in errore (tail-keep), senza i figli.
+ */
+public class Tracer {
+
+    public static final String TRACEPARENT = "traceparent";
+
+    /**
+     * Attributo di request con lo span server della richiesta
+     */
+    public static final String SPAN_ATTRIBUTE = Tracer.class.getName() + ".SPAN";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final int TRACEPARENT_LENGTH = 55;
+
+    @Value("${tracing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tracing.sampler.ratio:0.1}")
+    private double ratio;
+
+    @Value("${tracing.sampler.parent-based:true}")
+    private boolean parentBased;
+
+    @Value("${tracing.tail.slow-threshold-ms:1000}")
+    private long slowThresholdMs;
+
+    @Value("${tracing.tail.keep-errors:true}")
+    private boolean keepErrors;
+
+    private final SpanExporter exporter;
+
+    private final ThreadLocal<Span> current = new ThreadLocal<>();
+
+    private long sampleThreshold;
+    private long slowThresholdNanos;
+
+    public Tracer(SpanExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    @PostConstruct
+    public void init() {
+        // Confronto sui 63 bit bassi del trace id: stessa decisione in ogni servizio per la stessa traccia
+        sampleThreshold = ratio >= 1.0 ? Long.MAX_VALUE : ratio <= 0.0 ? -1 : (long) (ratio * Long.MAX_VALUE);
+        slowThresholdNanos = slowThresholdMs > 0 ? TimeUnit.MILLISECONDS.toNanos(slowThresholdMs) : Long.MAX_VALUE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Span server della richiesta: continua la traccia del traceparent ricevuto, se valido,
+     * altrimenti ne apre una nuova
+     */
+    public Span startServerSpan(String traceparent, String name) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long traceIdHigh;
+        long traceIdLow;
+        long parentSpanId = 0;
+        boolean sampled;
+        if (isValid(traceparent)) {
+            traceIdHigh = parseHex(traceparent, 3);
+            traceIdLow = parseHex(traceparent, 19);
+            parentSpanId = parseHex(traceparent, 36);
+            sampled = parentBased ? isSampledFlag(traceparent) : sample(traceIdLow);
+        } else {
+            traceIdHigh = random.nextLong();
+            traceIdLow = nonZero(random);
+            sampled = sample(traceIdLow);
+        }
+        return new Span(this, name, Span.Kind.SERVER, traceIdHigh, traceIdLow, nonZero(random), parentSpanId,
+                sampled, System.currentTimeMillis() * 1_000_000L);
+    }
+
+    /**
+     * Span client per una chiamata in uscita, figlio dello span indicato dal traceparent
+     * che verra' inoltrato; NOOP se la traccia non e' campionata
+     */
+    public Span startClientSpan(String parentTraceparent, String name) {
+        if (!enabled || parentTraceparent == null || parentTraceparent.length() < TRACEPARENT_LENGTH
+                || !isSampledFlag(parentTraceparent) || !isValid(parentTraceparent)) {
+            return Span.NOOP;
+        }
+        return new Span(this, name, Span.Kind.CLIENT, parseHex(parentTraceparent, 3),
+                parseHex(parentTraceparent, 19), nonZero(ThreadLocalRandom.current()),
+                parseHex(parentTraceparent, 36), true, System.currentTimeMillis() * 1_000_000L);
+    }
+
+    /**
+     * Span client per una chiamata in uscita figlia dello span server della richiesta;
+     * NOOP se la traccia non e' campionata
+     */
+    public Span startClientSpan(Span parent, String name) {
+        if (parent == null || !parent.sampled) {
+            return Span.NOOP;
+        }
+        return new Span(this, name, Span.Kind.CLIENT, parent.traceIdHigh, parent.traceIdLow,
+                nonZero(ThreadLocalRandom.current()), parent.spanId, true,
+                parent.startEpochNanos + (System.nanoTime() - parent.startNanos));
+    }
+
+    /**
+     * Span figlio dello span corrente del thread, che diventa corrente fino a end();
+     * NOOP se non c'e' uno span corrente campionato
+     */
+    public Span startSpan(String name, Span.Kind kind) {
+        Span parent = current.get();
+        if (parent == null || !parent.sampled) {
+            return Span.NOOP;
+        }
+        Span span = new Span(this, name, kind, parent.traceIdHigh, parent.traceIdLow,
+                nonZero(ThreadLocalRandom.current()), parent.spanId, true,
+                parent.startEpochNanos + (System.nanoTime() - parent.startNanos));
+        span.previous = parent;
+        span.scoped = true;
+        current.set(span);
+        return span;
+    }
+
+    /**
+     * Indica se lo span corrente del thread e' campionato (gli span figli verrebbero registrati)
+     */
+    public boolean isRecording() {
+        Span span = current.get();
+        return span != null && span.sampled;
+    }
+
+    /**
+     * Span corrente del thread, o null; per proseguire la traccia su un altro thread con makeCurrent()
+     */
+    public Span currentSpan() {
+        return current.get();
+    }
+
+    /**
+     * Rende corrente lo span sul thread e restituisce quello precedente da ripristinare
+     */
+    public Span makeCurrent(Span span) {
+        Span previous = current.get();
+        current.set(span);
+        return previous;
+    }
+
+    public void restoreCurrent(Span previous) {
+        if (previous == null) {
+            current.remove();
+        } else {
+            current.set(previous);
+        }
+    }
+
+    void end(Span span) {
+        if (span.scoped && current.get() == span) {
+            restoreCurrent(span.previous);
+        }
+        span.previous = null;
+        if (span.sampled) {
+            exporter.export(span);
+        } else if (span.kind == Span.Kind.SERVER
+                && ((keepErrors && span.error) || span.durationNanos >= slowThresholdNanos)) {
+            span.tailKept = true;
+            exporter.export(span);
+        }
+    }
+
+    private boolean sample(long traceIdLow) {
+        return (traceIdLow & Long.MAX_VALUE) <= sampleThreshold;
+    }
+
+    /**
+     * Formato 00-{trace id 32 hex}-{parent id 16 hex}-{flags 2 hex}, id diversi da zero
+     */
+    private static boolean isValid(String traceparent) {
+        if (traceparent == null || traceparent.length() < TRACEPARENT_LENGTH
+                || traceparent.charAt(2) != '-' || traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-'
+                || (traceparent.length() > TRACEPARENT_LENGTH && traceparent.charAt(TRACEPARENT_LENGTH) != '-')) {
+            return false;
+        }
+        for (int i = 0; i < TRACEPARENT_LENGTH; i++) {
+            if (i != 2 && i != 35 && i != 52 && Character.digit(traceparent.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return !traceparent.startsWith("ff")
+                && (parseHex(traceparent, 3) != 0 || parseHex(traceparent, 19) != 0)
+                && parseHex(traceparent, 36) != 0;
+    }
+
+    /**
+     * Bit sampled (0x01) dei trace-flags
+     */
+    private static boolean isSampledFlag(String traceparent) {
+        return (Character.digit(traceparent.charAt(54), 16) & 1) == 1;
+    }
+
+    private static long parseHex(String value, int offset) {
+        long result = 0;
+        for (int i = offset; i < offset + 16; i++) {
+            result = (result << 4) | Character.digit(value.charAt(i), 16);
+        }
+        return result;
+    }
+
+    private static long nonZero(ThreadLocalRandom random) {
+        long value;
+        do {
+            value = random.nextLong();
+        } while (value == 0);
+        return value;
+    }
+
+    static void hex(long value, char[] target, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            target[offset + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    static String hex(long value) {
+        char[] chars = new char[16];
+        hex(value, chars, 0);
+        return new String(chars);
+    }
+}
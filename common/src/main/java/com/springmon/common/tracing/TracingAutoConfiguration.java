@@ -0,0 +1,30 @@
+package com.springmon.common.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Tracer, esportatore e span server delle richieste (TracingFilter) in ogni servizio.
+ * Gli span di controller e repository si attivano importando TracingConfig.
+ */
+@AutoConfiguration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class TracingAutoConfiguration {
+
+    @Bean
+    public SpanExporter spanExporter(MeterRegistry meterRegistry) {
+        return new SpanExporter(meterRegistry);
+    }
+
+    @Bean
+    public Tracer tracer(SpanExporter spanExporter) {
+        return new Tracer(spanExporter);
+    }
+
+    @Bean
+    public TracingFilter tracingFilter(Tracer tracer) {
+        return new TracingFilter(tracer);
+    }
+}
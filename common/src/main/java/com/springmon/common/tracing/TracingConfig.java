@@ -0,0 +1,132 @@
+package com.springmon.common.tracing;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Span dei controller (HandlerInterceptor) e dei repository Spring Data (advice sul proxy del repository).
+ * Con una traccia non campionata il costo e' un controllo sullo span corrente del thread.
+ * Non e' un'auto-configurazione: la importano i servizi con controller e repository JPA (auth, user).
+ */
+@Configuration
+public class TracingConfig implements WebMvcConfigurer {
+
+    private static final String CONTROLLER_SPAN_ATTRIBUTE = TracingConfig.class.getName() + ".CONTROLLER_SPAN";
+
+    @Autowired
+    private Tracer tracer;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (tracer.isEnabled()) {
+            registry.addInterceptor(new ControllerSpanInterceptor(tracer));
+        }
+    }
+
+    /**
+     * Statico: i BeanPostProcessor vengono istanziati prima degli altri bean
+     */
+    @Bean
+    public static BeanPostProcessor repositoryTracingPostProcessor(ObjectProvider<Tracer> tracerProvider) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(repositoryFactory ->
+                            repositoryFactory.addRepositoryProxyPostProcessor((proxy, information) -> {
+                                Tracer tracer = tracerProvider.getObject();
+                                if (tracer.isEnabled()) {
+                                    proxy.addAdvice(new RepositorySpanInterceptor(tracer,
+                                            information.getRepositoryInterface().getSimpleName()));
+                                }
+                            }));
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static class ControllerSpanInterceptor implements AsyncHandlerInterceptor {
+
+        private final Tracer tracer;
+
+        ControllerSpanInterceptor(Tracer tracer) {
+            this.tracer = tracer;
+        }
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            if (handler instanceof HandlerMethod method && tracer.isRecording()) {
+                Span span = tracer.startSpan(method.getBeanType().getSimpleName() + "." + method.getMethod().getName(),
+                        Span.Kind.INTERNAL);
+                request.setAttribute(CONTROLLER_SPAN_ATTRIBUTE, span);
+            }
+            return true;
+        }
+
+        @Override
+        public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                                   Object handler) {
+            // Il metodo del controller e' terminato; la risposta prosegue su un altro thread
+            end(request, null);
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                    Exception ex) {
+            end(request, ex);
+        }
+
+        private static void end(HttpServletRequest request, Exception ex) {
+            Span span = (Span) request.getAttribute(CONTROLLER_SPAN_ATTRIBUTE);
+            if (span != null) {
+                request.removeAttribute(CONTROLLER_SPAN_ATTRIBUTE);
+                if (ex != null) {
+                    span.recordError(ex);
+                }
+                span.end();
+            }
+        }
+    }
+
+    private static class RepositorySpanInterceptor implements MethodInterceptor {
+
+        private final Tracer tracer;
+        private final String repositoryName;
+
+        RepositorySpanInterceptor(Tracer tracer, String repositoryName) {
+            this.tracer = tracer;
+            this.repositoryName = repositoryName;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            if (!tracer.isRecording()) {
+                return invocation.proceed();
+            }
+            String operation = invocation.getMethod().getName();
+            Span span = tracer.startSpan(repositoryName + "." + operation, Span.Kind.CLIENT)
+                    .setAttribute("db.operation", operation);
+            try {
+                return invocation.proceed();
+            } catch (Throwable t) {
+                span.recordError(t);
+                throw t;
+            } finally {
+                span.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.springmon.common.tracing;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Span server di ogni richiesta, aperto prima di tutti gli altri filtri (security compresa)
+ * dal traceparent ricevuto. Lo span e' corrente sul thread della richiesta e disponibile
+ * in Tracer.SPAN_ATTRIBUTE; per le richieste asincrone si chiude al completamento della risposta.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TracingFilter extends OncePerRequestFilter {
+
+    private final Tracer tracer;
+
+    public TracingFilter(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !tracer.isEnabled() || request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Span span = tracer.startServerSpan(request.getHeader(Tracer.TRACEPARENT), request.getMethod())
+                .setAttribute("http.request.method", request.getMethod())
+                .setAttribute("url.path", request.getRequestURI());
+        request.setAttribute(Tracer.SPAN_ATTRIBUTE, span);
+
+        Span previous = tracer.makeCurrent(span);
+        Throwable failure = null;
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            tracer.restoreCurrent(previous);
+            if (failure == null && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(span, response));
+            } else {
+                end(span, failure == null ? response.getStatus() : HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                        failure);
+            }
+        }
+    }
+
+    private static void end(Span span, int status, Throwable failure) {
+        span.setAttribute("http.response.status_code", status);
+        if (failure != null) {
+            span.recordError(failure);
+        } else if (status >= 500) {
+            span.markError();
+        }
+        span.end();
+    }
+
+    private static class CompletionListener implements AsyncListener {
+
+        private final Span span;
+        private final HttpServletResponse response;
+
+        CompletionListener(Span span, HttpServletResponse response) {
+            this.span = span;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            end(span, response.getStatus(), null);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
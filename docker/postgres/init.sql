@@ -40,10 +40,10 @@ CREATE TABLE IF NOT EXISTS user_roles (
     PRIMARY KEY (user_id, role_id)
 );
 
--- Tabella refresh tokens per JWT
+-- Tabella refresh tokens: token opachi, salvato solo lo SHA-256 (32 byte)
 CREATE TABLE IF NOT EXISTS refresh_tokens (
     id BIGSERIAL PRIMARY KEY,
-    token VARCHAR(255) UNIQUE NOT NULL,
+    token_hash BYTEA UNIQUE NOT NULL CHECK (octet_length(token_hash) = 32),
     user_id BIGINT REFERENCES users(id) ON DELETE CASCADE,
     expiry_date TIMESTAMP NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
@@ -72,7 +72,6 @@ ON CONFLICT DO NOTHING;
 -- Indici per performance
 CREATE INDEX IF NOT EXISTS idx_users_username ON users(username);
 CREATE INDEX IF NOT EXISTS idx_users_email ON users(email);
-CREATE INDEX IF NOT EXISTS idx_refresh_tokens_token ON refresh_tokens(token);
 CREATE INDEX IF NOT EXISTS idx_refresh_tokens_user_id ON refresh_tokens(user_id);
 CREATE INDEX IF NOT EXISTS idx_refresh_tokens_expiry ON refresh_tokens(expiry_date);
 
@@ -94,7 +93,7 @@ CREATE OR REPLACE TRIGGER update_users_updated_at
 COMMENT ON TABLE users IS 'Tabella utenti per autenticazione SpringMon';
 COMMENT ON TABLE roles IS 'Ruoli di sistema';
 COMMENT ON TABLE user_roles IS 'Associazione molti-a-molti utenti-ruoli';
-COMMENT ON TABLE refresh_tokens IS 'Token di refresh per JWT';
+COMMENT ON TABLE refresh_tokens IS 'Token di refresh opachi (solo digest SHA-256)';
 
 -- Pulizia automatica token scaduti (da schedulare)
 -- DELETE FROM refresh_tokens WHERE expiry_date < CURRENT_TIMESTAMP;
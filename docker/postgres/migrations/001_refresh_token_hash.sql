@@ -0,0 +1,20 @@
+-- Refresh token opachi: da token VARCHAR(255) (JWT in chiaro) a token_hash BYTEA (SHA-256, 32 byte).
+-- Per database creati con una versione precedente di init.sql; da eseguire prima di avviare
+-- la nuova versione di auth-service:
+--   psql -U springmon_user -d springmon_auth -f docker/postgres/migrations/001_refresh_token_hash.sql
+-- I token gia' emessi restano validi: il digest del JWT e' quello che auth-service calcola al refresh.
+
+BEGIN;
+
+ALTER TABLE refresh_tokens ADD COLUMN IF NOT EXISTS token_hash BYTEA;
+
+UPDATE refresh_tokens SET token_hash = sha256(convert_to(token, 'UTF8')) WHERE token_hash IS NULL;
+
+ALTER TABLE refresh_tokens ALTER COLUMN token_hash SET NOT NULL;
+ALTER TABLE refresh_tokens ADD CONSTRAINT refresh_tokens_token_hash_length CHECK (octet_length(token_hash) = 32);
+ALTER TABLE refresh_tokens ADD CONSTRAINT refresh_tokens_token_hash_key UNIQUE (token_hash);
+
+DROP INDEX IF EXISTS idx_refresh_tokens_token;
+ALTER TABLE refresh_tokens DROP COLUMN token;
+
+COMMIT;
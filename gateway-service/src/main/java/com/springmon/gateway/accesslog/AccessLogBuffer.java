@@ -0,0 +1,107 @@
+package com.springmon.gateway.accesslog;
+
+import com.springmon.gateway.proxy.UpstreamInstance;
+import com.springmon.gateway.routing.Route;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ring buffer preallocato dei record di access log: molti produttori (thread delle richieste),
+ * un solo consumatore (AccessLogWriter). Senza lock: ogni slot ha un numero di sequenza che dice
+ * se e' libero per il giro corrente o pubblicato; con il buffer pieno offer() fallisce subito.
+ */
+final class AccessLogBuffer {
+
+    /**
+     * Record a layout fisso; i riferimenti puntano a oggetti gia' esistenti (rotta, istanza, metodo)
+     */
+    static final class Entry {
+        long startMillis;
+        String method;
+        Route route;
+        int status;
+        long latencyNanos;
+        long bytes;
+        long subjectHash;
+        UpstreamInstance instance;
+    }
+
+    private final Entry[] entries;
+
+    /**
+     * Per lo slot i: == posizione se libero per il produttore, == posizione + 1 se pubblicato
+     */
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Letto e scritto solo dal consumatore
+     */
+    private long head;
+
+    AccessLogBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Access log buffer size must be a power of two: " + capacity);
+        }
+        this.entries = new Entry[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new Entry();
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Accoda un record; false se il buffer e' pieno (il record viene scartato)
+     */
+    boolean offer(long startMillis, String method, Route route, int status, long latencyNanos, long bytes,
+                  long subjectHash, UpstreamInstance instance) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.getAcquire(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    Entry entry = entries[index];
+                    entry.startMillis = startMillis;
+                    entry.method = method;
+                    entry.route = route;
+                    entry.status = status;
+                    entry.latencyNanos = latencyNanos;
+                    entry.bytes = bytes;
+                    entry.subjectHash = subjectHash;
+                    entry.instance = instance;
+                    sequences.setRelease(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // Lo slot non e' ancora stato consumato dal giro precedente
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Prossimo record pubblicato, o null; va restituito con release() prima della chiamata successiva
+     */
+    Entry peek() {
+        int index = (int) head & mask;
+        return sequences.getAcquire(index) == head + 1 ? entries[index] : null;
+    }
+
+    void release(Entry entry) {
+        entry.method = null;
+        entry.route = null;
+        entry.instance = null;
+        sequences.setRelease((int) head & mask, head + entries.length);
+        head++;
+    }
+}
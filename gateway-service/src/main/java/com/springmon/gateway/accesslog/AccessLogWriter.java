@@ -0,0 +1,260 @@
+package com.springmon.gateway.accesslog;
+
+import com.springmon.gateway.proxy.UpstreamInstance;
+import com.springmon.gateway.routing.Route;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Scrittura dell'access log: un solo thread svuota l'AccessLogBuffer a lotti verso un FileChannel,
+ * con rotazione per dimensione (access.log, access.log.1 ... access.log.N).
+ * I thread delle richieste non toccano mai il disco: con il buffer pieno il record viene
+ * scartato e contato in gateway.accesslog.records{result="dropped"}.
+ */
+public class AccessLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessLogWriter.class);
+
+    private static final int OUTPUT_BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * Spazio minimo libero nel buffer di output prima di formattare un record
+     */
+    private static final int MAX_LINE_BYTES = 1024;
+
+    private static final int BATCH_SIZE = 1024;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    @Value("${gateway.access-log.path:logs/access.log}")
+    private String path;
+
+    @Value("${gateway.access-log.buffer-size:8192}")
+    private int bufferSize;
+
+    @Value("${gateway.access-log.max-file-size-mb:100}")
+    private long maxFileSizeMb;
+
+    @Value("${gateway.access-log.max-history:5}")
+    private int maxHistory;
+
+    @Value("${gateway.access-log.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    private final MeterRegistry meterRegistry;
+
+    private AccessLogBuffer buffer;
+    private Thread worker;
+    private volatile boolean running;
+
+    private Counter written;
+    private Counter dropped;
+    private Counter failed;
+
+    // Stato del solo thread di scrittura
+    private Path file;
+    private FileChannel channel;
+    private long fileSize;
+    private long maxFileBytes;
+    private long lastFlushNanos;
+    private boolean failureLogged;
+    private final ByteBuffer output = ByteBuffer.allocateDirect(OUTPUT_BUFFER_BYTES);
+    private final StringBuilder line = new StringBuilder(256);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+    public AccessLogWriter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        buffer = new AccessLogBuffer(bufferSize);
+        file = Path.of(path);
+        maxFileBytes = maxFileSizeMb * 1024 * 1024;
+        written = counter("written");
+        dropped = counter("dropped");
+        failed = counter("failed");
+
+        running = true;
+        worker = new Thread(this::run, "access-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(worker);
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Accoda il record senza bloccare
+     */
+    public void append(long startMillis, String method, Route route, int status, long latencyNanos, long bytes,
+                       long subjectHash, UpstreamInstance instance) {
+        if (!buffer.offer(startMillis, method, route, status, latencyNanos, bytes, subjectHash, instance)) {
+            dropped.increment();
+        }
+    }
+
+    private void run() {
+        lastFlushNanos = System.nanoTime();
+        while (running) {
+            int drained = drain();
+            if (drained == 0 || System.nanoTime() - lastFlushNanos >= TimeUnit.MILLISECONDS.toNanos(flushIntervalMs)) {
+                flush();
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        // Arresto: scrive quanto e' rimasto nel buffer
+        while (drain() > 0) {
+            // continua finche' ci sono record pubblicati
+        }
+        flush();
+        closeChannel();
+    }
+
+    private int drain() {
+        int count = 0;
+        AccessLogBuffer.Entry entry;
+        while (count < BATCH_SIZE && (entry = buffer.peek()) != null) {
+            if (output.remaining() < MAX_LINE_BYTES) {
+                flush();
+            }
+            format(entry);
+            buffer.release(entry);
+            count++;
+        }
+        if (count > 0) {
+            written.increment(count);
+        }
+        return count;
+    }
+
+    /**
+     * timestamp metodo route=... status=... latency_us=... bytes=... subject=... upstream=...
+     */
+    private void format(AccessLogBuffer.Entry entry) {
+        line.setLength(0);
+        DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(entry.startMillis), line);
+        line.append(' ').append(entry.method)
+                .append(" route=").append(entry.route != null ? entry.route.getId() : "-")
+                .append(" status=").append(entry.status)
+                .append(" latency_us=").append(TimeUnit.NANOSECONDS.toMicros(entry.latencyNanos))
+                .append(" bytes=").append(entry.bytes)
+                .append(" subject=");
+        if (entry.subjectHash != 0) {
+            String hex = Long.toHexString(entry.subjectHash);
+            for (int i = hex.length(); i < 16; i++) {
+                line.append('0');
+            }
+            line.append(hex);
+        } else {
+            line.append('-');
+        }
+        line.append(" upstream=").append(entry.instance != null ? entry.instance.getBaseUrl() : "-")
+                .append('\n');
+        if (line.length() > MAX_LINE_BYTES / 4) {
+            // Rotte o URL anomali: il record resta su una riga, troncato
+            line.setLength(MAX_LINE_BYTES / 4 - 1);
+            line.append('\n');
+        }
+        encoder.reset();
+        encoder.encode(CharBuffer.wrap(line), output, true);
+    }
+
+    private void flush() {
+        lastFlushNanos = System.nanoTime();
+        if (output.position() == 0) {
+            return;
+        }
+        output.flip();
+        try {
+            if (channel == null) {
+                open();
+            } else if (fileSize > 0 && fileSize + output.remaining() > maxFileBytes) {
+                rotate();
+            }
+            while (output.hasRemaining()) {
+                fileSize += channel.write(output);
+            }
+            failureLogged = false;
+        } catch (IOException e) {
+            failed.increment();
+            if (!failureLogged) {
+                logger.warn("Access log write to {} failed: {}", file, e.toString());
+                failureLogged = true;
+            }
+            closeChannel();
+        } finally {
+            output.clear();
+        }
+    }
+
+    private void open() throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        fileSize = channel.size();
+    }
+
+    private void rotate() throws IOException {
+        closeChannel();
+        String name = file.getFileName().toString();
+        for (int i = maxHistory - 1; i >= 1; i--) {
+            Path source = file.resolveSibling(name + "." + i);
+            if (Files.exists(source)) {
+                Files.move(source, file.resolveSibling(name + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxHistory > 0) {
+            Files.move(file, file.resolveSibling(name + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(file);
+        }
+        open();
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Closing access log failed", e);
+            }
+            channel = null;
+        }
+    }
+
+    private Counter counter(String result) {
+        return Counter.builder("gateway.accesslog.records")
+                .description("Record di access log, per esito (dropped = buffer pieno)")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
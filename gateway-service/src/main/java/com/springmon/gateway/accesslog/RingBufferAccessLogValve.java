@@ -0,0 +1,81 @@
+package com.springmon.gateway.accesslog;
+
+import com.springmon.gateway.filter.JwtAuthenticationFilter;
+import com.springmon.gateway.proxy.UpstreamInstance;
+import com.springmon.gateway.routing.RouteTable;
+import com.springmon.gateway.service.VerifiedClaims;
+import jakarta.servlet.ServletException;
+import org.apache.catalina.AccessLog;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.ValveBase;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Access log Tomcat: log() viene invocato a risposta completata (anche per le richieste asincrone)
+ * con la latenza in nanosecondi e i byte effettivamente scritti sulla connessione.
+ * Il record viene campionato (sample-rate; gli errori 5xx sempre, se always-log-errors)
+ * e passato all'AccessLogWriter senza I/O sul thread della richiesta.
+ */
+public class RingBufferAccessLogValve extends ValveBase implements AccessLog {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final AccessLogWriter writer;
+    private final RouteTable routeTable;
+    private final double sampleRate;
+    private final boolean alwaysLogErrors;
+
+    public RingBufferAccessLogValve(AccessLogWriter writer, RouteTable routeTable, double sampleRate,
+                                    boolean alwaysLogErrors) {
+        super(true);
+        this.writer = writer;
+        this.routeTable = routeTable;
+        this.sampleRate = sampleRate;
+        this.alwaysLogErrors = alwaysLogErrors;
+    }
+
+    @Override
+    public void invoke(Request request, Response response) throws IOException, ServletException {
+        getNext().invoke(request, response);
+    }
+
+    @Override
+    public void log(Request request, Response response, long time) {
+        int status = response.getStatus();
+        if (sampleRate < 1.0 && !(alwaysLogErrors && status >= 500)
+                && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        VerifiedClaims claims = (VerifiedClaims) request.getAttribute(JwtAuthenticationFilter.VERIFIED_CLAIMS_ATTRIBUTE);
+        writer.append(request.getCoyoteRequest().getStartTime(), request.getMethod(), routeTable.match(request),
+                status, time, response.getBytesWritten(false),
+                claims != null ? subjectHash(claims.getSubject()) : 0,
+                (UpstreamInstance) request.getAttribute(UpstreamInstance.ATTRIBUTE));
+    }
+
+    @Override
+    public void setRequestAttributesEnabled(boolean requestAttributesEnabled) {
+        // Nessun attributo di AccessLog usato (indirizzo remoto, protocollo...)
+    }
+
+    @Override
+    public boolean getRequestAttributesEnabled() {
+        return false;
+    }
+
+    /**
+     * FNV-1a a 64 bit del subject: correla le richieste dello stesso utente senza scriverne lo username
+     */
+    static long subjectHash(String subject) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < subject.length(); i++) {
+            hash ^= subject.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash != 0 ? hash : 1;
+    }
+}
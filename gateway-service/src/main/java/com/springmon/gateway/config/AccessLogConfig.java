@@ -0,0 +1,39 @@
+package com.springmon.gateway.config;
+
+import com.springmon.gateway.accesslog.AccessLogWriter;
+import com.springmon.gateway.accesslog.RingBufferAccessLogValve;
+import com.springmon.gateway.routing.RouteTable;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Access log del gateway su ring buffer: una riga per richiesta (campionata), scritta
+ * da un thread dedicato su gateway.access-log.path con rotazione per dimensione.
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.access-log.enabled", havingValue = "true", matchIfMissing = true)
+public class AccessLogConfig {
+
+    @Value("${gateway.access-log.sample-rate:1.0}")
+    private double sampleRate;
+
+    @Value("${gateway.access-log.always-log-errors:true}")
+    private boolean alwaysLogErrors;
+
+    @Bean
+    public AccessLogWriter accessLogWriter(MeterRegistry meterRegistry) {
+        return new AccessLogWriter(meterRegistry);
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> accessLogValveCustomizer(
+            AccessLogWriter accessLogWriter, RouteTable routeTable) {
+        return factory -> factory.addContextValves(
+                new RingBufferAccessLogValve(accessLogWriter, routeTable, sampleRate, alwaysLogErrors));
+    }
+}
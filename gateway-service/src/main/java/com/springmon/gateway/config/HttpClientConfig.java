@@ -0,0 +1,202 @@
+package com.springmon.gateway.config;
+
+import com.springmon.gateway.proxy.UpstreamRequestFactory;
+import com.springmon.gateway.proxy.UpstreamTimings;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
+import org.apache.hc.client5.http.socket.PlainConnectionSocketFactory;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.config.RegistryBuilder;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Client HTTP verso i servizi interni: pool di connessioni keep-alive con timeout espliciti.
+ * Con gateway.http.client.http2-enabled=true usa il client JDK in HTTP/2 (multiplexing, senza pool esplicito).
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${spring.http.timeout.connect:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${spring.http.timeout.read:10000}")
+    private long readTimeoutMs;
+
+    @Value("${gateway.http.client.response-timeout:10000}")
+    private long responseTimeoutMs;
+
+    @Value("${gateway.http.client.pool-acquire-timeout:2000}")
+    private long poolAcquireTimeoutMs;
+
+    @Value("${gateway.http.client.max-total:200}")
+    private int maxTotal;
+
+    @Value("${gateway.http.client.max-per-route:50}")
+    private int maxPerRoute;
+
+    @Value("${gateway.http.client.keep-alive:30000}")
+    private long keepAliveMs;
+
+    @Value("${gateway.http.client.idle-eviction:30000}")
+    private long idleEvictionMs;
+
+    @Value("${gateway.http.client.validate-after-inactivity:2000}")
+    private long validateAfterInactivityMs;
+
+    @Bean
+    @ConditionalOnProperty(name = "gateway.http.client.http2-enabled", havingValue = "false", matchIfMissing = true)
+    public PoolingHttpClientConnectionManager upstreamConnectionManager(MeterRegistry meterRegistry,
+                                                                         UpstreamTimings upstreamTimings) {
+        // Le nuove connessioni in chiaro passano dal socket factory temporizzato (gateway.upstream.connect)
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", new TimedConnectionSocketFactory(
+                                PlainConnectionSocketFactory.getSocketFactory(), upstreamTimings))
+                        .register("https", SSLConnectionSocketFactory.getSocketFactory())
+                        .build(),
+                PoolConcurrencyPolicy.STRICT, PoolReusePolicy.LIFO, TimeValue.NEG_ONE_MILLISECOND);
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .setValidateAfterInactivity(TimeValue.ofMilliseconds(validateAfterInactivityMs))
+                .build());
+
+        // Metriche del pool: connessioni leased, available e richieste pending
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "upstream")
+                .bindTo(meterRegistry);
+
+        return connectionManager;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "gateway.http.client.http2-enabled", havingValue = "false", matchIfMissing = true)
+    public CloseableHttpClient upstreamHttpClient(PoolingHttpClientConnectionManager upstreamConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(upstreamConnectionManager)
+                .setDefaultRequestConfig(requestConfig(Duration.ofMillis(responseTimeoutMs)))
+                .setKeepAliveStrategy(new BoundedKeepAliveStrategy(TimeValue.ofMilliseconds(keepAliveMs)))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleEvictionMs))
+                .disableCookieManagement()
+                // Il body passa al client cosi' com'e', senza decompressione nel gateway
+                .disableContentCompression()
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "gateway.http.client.http2-enabled", havingValue = "false", matchIfMissing = true)
+    public UpstreamRequestFactory pooledRequestFactory(CloseableHttpClient upstreamHttpClient) {
+        return responseTimeout -> {
+            RequestConfig requestConfig = requestConfig(responseTimeout);
+            HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(upstreamHttpClient);
+            requestFactory.setHttpContextFactory((method, uri) -> {
+                HttpClientContext context = HttpClientContext.create();
+                context.setRequestConfig(requestConfig);
+                return context;
+            });
+            return requestFactory;
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "gateway.http.client.http2-enabled", havingValue = "true")
+    public UpstreamRequestFactory http2RequestFactory() {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        return responseTimeout -> {
+            JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+            requestFactory.setReadTimeout(responseTimeout);
+            return requestFactory;
+        };
+    }
+
+    private RequestConfig requestConfig(Duration responseTimeout) {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolAcquireTimeoutMs))
+                .setResponseTimeout(Timeout.ofMilliseconds(responseTimeout.toMillis()))
+                .build();
+    }
+
+    /**
+     * Misura il tempo di apertura di ogni nuova connessione verso gli upstream
+     */
+    static class TimedConnectionSocketFactory implements ConnectionSocketFactory {
+
+        private final ConnectionSocketFactory delegate;
+
+        private final UpstreamTimings upstreamTimings;
+
+        TimedConnectionSocketFactory(ConnectionSocketFactory delegate, UpstreamTimings upstreamTimings) {
+            this.delegate = delegate;
+            this.upstreamTimings = upstreamTimings;
+        }
+
+        @Override
+        public Socket createSocket(HttpContext context) throws IOException {
+            return delegate.createSocket(context);
+        }
+
+        @Override
+        public Socket connectSocket(TimeValue connectTimeout, Socket socket, HttpHost host,
+                                    InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+                                    HttpContext context) throws IOException {
+            long start = System.nanoTime();
+            Socket connected = delegate.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+            upstreamTimings.recordConnect(host.toHostString(), System.nanoTime() - start);
+            return connected;
+        }
+    }
+
+    /**
+     * Rispetta l'header Keep-Alive dell'upstream ma non mantiene mai una connessione
+     * idle oltre il limite configurato
+     */
+    static class BoundedKeepAliveStrategy extends DefaultConnectionKeepAliveStrategy {
+
+        private final TimeValue maxKeepAlive;
+
+        BoundedKeepAliveStrategy(TimeValue maxKeepAlive) {
+            this.maxKeepAlive = maxKeepAlive;
+        }
+
+        @Override
+        public TimeValue getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            TimeValue duration = super.getKeepAliveDuration(response, context);
+            if (duration == null || duration.toMilliseconds() <= 0
+                    || duration.toMilliseconds() > maxKeepAlive.toMilliseconds()) {
+                return maxKeepAlive;
+            }
+            return duration;
+        }
+    }
+}
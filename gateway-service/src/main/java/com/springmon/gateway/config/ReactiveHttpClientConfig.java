@@ -0,0 +1,119 @@
+package com.springmon.gateway.config;
+
+import com.springmon.gateway.proxy.UpstreamTimings;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.channel.ChannelMetricsRecorder;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.time.Duration;
+
+/**
+ * Client non bloccante (Reactor Netty) usato dal motore di proxy reattivo.
+ * Pochi event loop gestiscono decine di migliaia di chiamate upstream in volo.
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.proxy.engine", havingValue = "reactive")
+public class ReactiveHttpClientConfig {
+
+    @Value("${spring.http.timeout.connect:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${gateway.http.client.response-timeout:10000}")
+    private long responseTimeoutMs;
+
+    @Value("${gateway.http.client.pool-acquire-timeout:2000}")
+    private long poolAcquireTimeoutMs;
+
+    @Value("${gateway.http.client.idle-eviction:30000}")
+    private long idleEvictionMs;
+
+    @Value("${gateway.proxy.reactive.max-connections:10000}")
+    private int maxConnections;
+
+    @Value("${gateway.proxy.reactive.pending-acquire-max:50000}")
+    private int pendingAcquireMax;
+
+    @Bean
+    public ConnectionProvider upstreamConnectionProvider() {
+        return ConnectionProvider.builder("upstream")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMax)
+                .pendingAcquireTimeout(Duration.ofMillis(poolAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(idleEvictionMs))
+                .evictInBackground(Duration.ofMillis(idleEvictionMs))
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public WebClient upstreamWebClient(WebClient.Builder builder, ConnectionProvider upstreamConnectionProvider,
+                                       UpstreamTimings upstreamTimings) {
+        ConnectTimeRecorder connectTimeRecorder = new ConnectTimeRecorder(upstreamTimings);
+        HttpClient httpClient = HttpClient.create(upstreamConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs))
+                .metrics(true, () -> connectTimeRecorder);
+
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    /**
+     * Registra solo i tempi di connect (gateway.upstream.connect): TTFB e durata totale
+     * sono misurati dal motore di proxy, byte ed errori non servono
+     */
+    static class ConnectTimeRecorder implements ChannelMetricsRecorder {
+
+        private static final String SUCCESS = "SUCCESS";
+
+        private final UpstreamTimings upstreamTimings;
+
+        ConnectTimeRecorder(UpstreamTimings upstreamTimings) {
+            this.upstreamTimings = upstreamTimings;
+        }
+
+        @Override
+        public void recordConnectTime(SocketAddress remoteAddress, Duration time, String status) {
+            if (SUCCESS.equals(status)) {
+                upstreamTimings.recordConnect(remote(remoteAddress), time.toNanos());
+            }
+        }
+
+        @Override
+        public void recordDataReceived(SocketAddress remoteAddress, long bytes) {
+        }
+
+        @Override
+        public void recordDataSent(SocketAddress remoteAddress, long bytes) {
+        }
+
+        @Override
+        public void incrementErrorsCount(SocketAddress remoteAddress) {
+        }
+
+        @Override
+        public void recordTlsHandshakeTime(SocketAddress remoteAddress, Duration time, String status) {
+        }
+
+        @Override
+        public void recordResolveAddressTime(SocketAddress remoteAddress, Duration time, String status) {
+        }
+
+        private static String remote(SocketAddress address) {
+            if (address instanceof InetSocketAddress inet) {
+                return inet.getHostString() + ":" + inet.getPort();
+            }
+            return String.valueOf(address);
+        }
+    }
+}
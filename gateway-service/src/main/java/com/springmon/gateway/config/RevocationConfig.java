@@ -0,0 +1,26 @@
+package com.springmon.gateway.config;
+
+import com.springmon.gateway.service.TokenRevocationSync;
+import com.springmon.gateway.service.TokenRevocations;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Sincronizzazione delle revoche dei token da Redis. La sottoscrizione viene ritentata
+ * finche' Redis non e' raggiungibile; il gateway parte e serve traffico comunque.
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.revocation.enabled", havingValue = "true", matchIfMissing = true)
+public class RevocationConfig {
+
+    @Bean
+    public TokenRevocationSync tokenRevocationSync(TokenRevocations revocations, StringRedisTemplate redisTemplate,
+                                                   RedisConnectionFactory connectionFactory,
+                                                   MeterRegistry meterRegistry) {
+        return new TokenRevocationSync(revocations, redisTemplate, connectionFactory, meterRegistry);
+    }
+}
@@ -1,9 +1,15 @@
 package com.springmon.gateway.config;
 
 import com.springmon.gateway.filter.JwtAuthenticationFilter;
+import com.springmon.gateway.filter.RateLimitFilter;
+import com.springmon.gateway.routing.RouteTable;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -22,9 +28,21 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
     @Autowired
     private JwtAuthenticationEntryPoint authenticationEntryPoint;
 
+    @Autowired
+    private RouteTable routeTable;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {        http
             // Disabilita CSRF per API REST
@@ -38,11 +56,19 @@ public class SecurityConfig {
             
             // Configurazione autorizzazioni
             .authorizeHttpRequests(authz -> authz
-                // Endpoint pubblici
-                .requestMatchers("/api/auth/**").permitAll()
+                // Le risposte asincrone del proxy sono gia' state autorizzate sulla richiesta originale
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
+                // Endpoint pubblici: rotte con auth-required=false ed endpoint locali
+                .requestMatchers(routeTable::isPublicRoute).permitAll()
                 .requestMatchers("/api/health").permitAll()
                 .requestMatchers("/api/info").permitAll()
-                .requestMatchers("/actuator/health").permitAll()
+                // Actuator sulla porta di management, non pubblicata: l'accesso e' limitato dalla rete.
+                // Sulla porta pubblica /actuator/** non e' servito (ne' la ricarica delle rotte ne' le metriche)
+                .requestMatchers(this::isManagementPort).permitAll()
+                // Con l'actuator sulla porta pubblica (management.server.port non separata) la ricarica
+                // delle rotte resta riservata agli amministratori
+                .requestMatchers(HttpMethod.POST, "/actuator/routes").hasRole("ADMIN")
                 
                 // Tutti gli altri endpoint richiedono autenticazione
                 .anyRequest().authenticated()
@@ -60,11 +86,21 @@ public class SecurityConfig {
             .httpBasic(basic -> basic.disable())
             
             // Aggiungi il filtro JWT prima dell'autenticazione standard
-            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+
+            // Rate limiting prima della validazione JWT
+            .addFilterBefore(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
 
+    /**
+     * Richiesta arrivata sulla porta di management, se separata da quella pubblica
+     */
+    private boolean isManagementPort(HttpServletRequest request) {
+        return managementPort > 0 && managementPort != serverPort && request.getLocalPort() == managementPort;
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
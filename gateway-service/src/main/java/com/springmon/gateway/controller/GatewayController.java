@@ -1,7 +1,8 @@
 package com.springmon.gateway.controller;
 
-import com.springmon.gateway.service.AuthProxyService;
+import com.springmon.gateway.filter.JwtAuthenticationFilter;
 import com.springmon.gateway.service.JwtValidationService;
+import com.springmon.gateway.service.VerifiedClaims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -14,77 +15,16 @@ import java.util.Map;
 @RequestMapping("/api")
 public class GatewayController {
 
-    @Autowired
-    private AuthProxyService authProxyService;
-    
     @Autowired
     private JwtValidationService jwtValidationService;
 
-    /**
-     * ENDPOINT PUBBLICO - Login (proxy verso auth-service)
-     */
-    @PostMapping("/auth/login")
-    public ResponseEntity<?> login(@RequestBody Map<String, String> credentials) {
-        try {
-            return authProxyService.login(credentials);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Authentication service unavailable"));
-        }
-    }
-
-    /**
-     * ENDPOINT PUBBLICO - Registrazione (proxy verso auth-service)
-     */
-    @PostMapping("/auth/register")
-    public ResponseEntity<?> register(@RequestBody Map<String, String> userData) {
-        try {
-            return authProxyService.register(userData);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Registration service unavailable"));
-        }
-    }
-
-    /**
-     * ENDPOINT PUBBLICO - Refresh token (proxy verso auth-service)
-     */
-    @PostMapping("/auth/refresh")
-    public ResponseEntity<?> refreshToken(@RequestBody Map<String, String> refreshRequest) {
-        try {
-            return authProxyService.refreshToken(refreshRequest);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Token refresh service unavailable"));
-        }
-    }
-
-    /**
-     * ENDPOINT PROTETTO - Informazioni utente
-     */
-    @GetMapping("/user/profile")
-    public ResponseEntity<?> getUserProfile(HttpServletRequest request) {
-        String token = extractTokenFromRequest(request);
-        if (token == null || !jwtValidationService.validateToken(token)) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(Map.of("error", "Invalid or missing token"));
-        }
-        
-        try {
-            return authProxyService.getUserProfile(token);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Profile service unavailable"));
-        }
-    }
-
     /**
      * ENDPOINT PROTETTO - SpringMon Application Data
      */
     @GetMapping("/springmon/data")
     public ResponseEntity<?> getSpringMonData(HttpServletRequest request) {
         String token = extractTokenFromRequest(request);
-        if (token == null || !jwtValidationService.validateToken(token)) {
+        if (token == null || resolveClaims(request, token) == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Access denied"));
         }
@@ -123,6 +63,17 @@ public class GatewayController {
         ));
     }
 
+    /**
+     * Riusa i claims verificati dal JwtAuthenticationFilter, verificando il token solo se assenti
+     */
+    private VerifiedClaims resolveClaims(HttpServletRequest request, String token) {
+        Object claims = request.getAttribute(JwtAuthenticationFilter.VERIFIED_CLAIMS_ATTRIBUTE);
+        if (claims instanceof VerifiedClaims) {
+            return (VerifiedClaims) claims;
+        }
+        return jwtValidationService.verify(token);
+    }
+
     /**
      * Estrazione token JWT dall'header Authorization
      */
@@ -0,0 +1,87 @@
+package com.springmon.gateway.controller;
+
+import com.springmon.gateway.proxy.CachingProxy;
+import com.springmon.gateway.proxy.ProxyEngine;
+import com.springmon.gateway.proxy.UpstreamLoadBalancer;
+import com.springmon.gateway.proxy.UpstreamInstance;
+import com.springmon.gateway.proxy.UpstreamRejectedException;
+import com.springmon.gateway.proxy.UpstreamResilience;
+import com.springmon.gateway.routing.Route;
+import com.springmon.gateway.routing.RouteTable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+/**
+ * Handler generico di forwarding: ogni richiesta /api/** senza un endpoint locale
+ * viene inoltrata all'upstream della rotta corrispondente nella RouteTable
+ */
+@RestController
+public class ProxyController {
+
+    @Autowired
+    private RouteTable routeTable;
+
+    @Autowired
+    private ProxyEngine proxyEngine;
+
+    @Autowired
+    private UpstreamResilience upstreamResilience;
+
+    @Autowired
+    private UpstreamLoadBalancer upstreamLoadBalancer;
+
+    @Autowired
+    private CachingProxy cachingProxy;
+
+    /**
+     * ENDPOINT PROXY - Path, metodo e autenticazione sono definiti da gateway.routes
+     */
+    @RequestMapping("/api/**")
+    public Mono<ResponseEntity<Object>> forward(HttpServletRequest request, HttpServletResponse response) {
+        Route route = routeTable.match(request);
+        if (route == null) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "No route for " + request.getMethod() + " " + request.getRequestURI())));
+        }
+
+        String query = request.getQueryString();
+        String target = request.getRequestURI() + (query != null ? "?" + query : "");
+
+        // La risposta viene scritta direttamente dal motore di proxy (o dalla cache): il Mono resta vuoto
+        // e produce un body solo se l'upstream non e' raggiungibile prima dell'invio della risposta
+        HttpMethod method = HttpMethod.valueOf(request.getMethod());
+        Mono<Void> call = cachingProxy.handles(route, request)
+                ? cachingProxy.serve(route, target, request, response)
+                : upstreamResilience.execute(route, response, upstreamLoadBalancer.execute(route, response,
+                        instance -> {
+                            request.setAttribute(UpstreamInstance.ATTRIBUTE, instance);
+                            return proxyEngine.forward(route, method, instance.resolve(target), request, response);
+                        }));
+        return call
+                .then(Mono.<ResponseEntity<Object>>empty())
+                .onErrorResume(e -> {
+                    if (response.isCommitted()) {
+                        return Mono.empty();
+                    }
+                    response.reset();
+                    if (e instanceof UpstreamRejectedException rejected) {
+                        // Fast-fail: l'upstream non e' stato contattato
+                        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(rejected.getRetryAfterSeconds()))
+                                .body(Map.of("error", rejected.getMessage())));
+                    }
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body(Map.of("error", route.getUpstream() + " service unavailable")));
+                });
+    }
+}
@@ -0,0 +1,230 @@
+package com.springmon.gateway.filter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compressione gzip in streaming delle risposte verso i client che la accettano (Accept-Encoding).
+ * Sono compresse solo le risposte dei content type configurati oltre min-response-size;
+ * quelle gia' codificate dall'upstream (Content-Encoding) o con no-transform passano invariate.
+ * Con la compressione l'ETag diventa debole: la rappresentazione non e' piu' identica byte per byte.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class CompressionFilter extends OncePerRequestFilter {
+
+    private static final String WRAPPER_ATTRIBUTE = CompressionFilter.class.getName() + ".wrapper";
+
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
+    @Value("${gateway.compression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${gateway.compression.min-response-size:1024}")
+    private int minResponseSize;
+
+    @Value("${gateway.compression.level:6}")
+    private int level;
+
+    @Value("${gateway.compression.mime-types:application/json,application/problem+json,text/plain}")
+    private String[] mimeTypes;
+
+    private final MeterRegistry meterRegistry;
+
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+
+    public CompressionFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        for (int i = 0; i < mimeTypes.length; i++) {
+            mimeTypes[i] = mimeTypes[i].trim().toLowerCase(Locale.ROOT);
+        }
+
+        FunctionCounter.builder("gateway.compression.responses", compressed, LongAdder::sum)
+                .description("Risposte verso client con Accept-Encoding gzip, compresse o lasciate invariate")
+                .tags("result", "compressed")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.compression.responses", skipped, LongAdder::sum)
+                .tags("result", "skipped")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.compression.bytes", bytesIn, LongAdder::sum)
+                .description("Byte delle risposte compresse prima e dopo gzip")
+                .baseUnit("bytes")
+                .tags("stage", "uncompressed")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.compression.bytes", bytesOut, LongAdder::sum)
+                .baseUnit("bytes")
+                .tags("stage", "compressed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // La risposta asincrona del proxy si chiude nel dispatch ASYNC finale
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            filterChain.doFilter(request, response);
+            GzipResponseWrapper wrapper = (GzipResponseWrapper) request.getAttribute(WRAPPER_ATTRIBUTE);
+            if (wrapper != null && !request.isAsyncStarted()) {
+                wrapper.finish();
+            }
+            return;
+        }
+
+        if (!enabled || "HEAD".equals(request.getMethod())
+                || !acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        GzipResponseWrapper wrapper = new GzipResponseWrapper(response, this, minResponseSize);
+        filterChain.doFilter(request, wrapper);
+        if (request.isAsyncStarted()) {
+            request.setAttribute(WRAPPER_ATTRIBUTE, wrapper);
+        } else {
+            wrapper.finish();
+        }
+    }
+
+    /**
+     * Indica se la risposta, con status e header gia' impostati, va compressa
+     */
+    boolean isCompressible(HttpServletResponse response, long contentLength) {
+        int status = response.getStatus();
+        if (status < 200 || status == HttpServletResponse.SC_NO_CONTENT
+                || status == HttpServletResponse.SC_PARTIAL_CONTENT
+                || status == HttpServletResponse.SC_NOT_MODIFIED) {
+            return false;
+        }
+        if (contentLength >= 0 && contentLength < minResponseSize) {
+            return false;
+        }
+        if (response.getHeader(HttpHeaders.CONTENT_ENCODING) != null) {
+            return false;
+        }
+        String cacheControl = response.getHeader(HttpHeaders.CACHE_CONTROL);
+        if (cacheControl != null && cacheControl.contains("no-transform")) {
+            return false;
+        }
+        return isCompressibleType(response.getContentType());
+    }
+
+    private boolean isCompressibleType(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int semicolon = contentType.indexOf(';');
+        String mimeType = (semicolon >= 0 ? contentType.substring(0, semicolon) : contentType)
+                .trim().toLowerCase(Locale.ROOT);
+        for (String candidate : mimeTypes) {
+            if (candidate.equals(mimeType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void applyCompressedHeaders(HttpServletResponse response) {
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        if (etag != null && !etag.startsWith("W/")) {
+            response.setHeader(HttpHeaders.ETAG, "W/" + etag);
+        }
+    }
+
+    /**
+     * Stream gzip con flush sincrono (i byte gia' scritti arrivano subito al client)
+     * che rilascia il Deflater nativo appena chiuso il trailer
+     */
+    OutputStream gzip(OutputStream target) throws IOException {
+        return new GZIPOutputStream(target, GZIP_BUFFER_SIZE, true) {
+            {
+                def.setLevel(level);
+            }
+
+            @Override
+            public void finish() throws IOException {
+                try {
+                    super.finish();
+                } finally {
+                    def.end();
+                }
+            }
+        };
+    }
+
+    void recordCompressed(long uncompressedBytes, long compressedBytes) {
+        compressed.increment();
+        bytesIn.add(uncompressedBytes);
+        bytesOut.add(compressedBytes);
+    }
+
+    void recordSkipped() {
+        skipped.increment();
+    }
+
+    /**
+     * Accept-Encoding che ammette gzip (anche tramite "*") con q maggiore di zero
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String part : acceptEncoding.split(",")) {
+            int semicolon = part.indexOf(';');
+            String coding = (semicolon >= 0 ? part.substring(0, semicolon) : part).trim();
+            boolean accepted = semicolon < 0 || qualityOf(part.substring(semicolon + 1)) > 0;
+            if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip")) {
+                return accepted;
+            }
+            if (coding.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return wildcard;
+    }
+
+    private static double qualityOf(String params) {
+        for (String param : params.split(";")) {
+            String trimmed = param.trim();
+            if (trimmed.startsWith("q=") || trimmed.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
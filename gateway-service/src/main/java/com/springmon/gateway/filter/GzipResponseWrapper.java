@@ -0,0 +1,277 @@
+package com.springmon.gateway.filter;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Risposta che comprime il body in gzip mentre viene scritto, senza mai tenerlo tutto in memoria.
+ * La decisione e' presa alla prima scrittura, quando status e header sono noti; se la lunghezza
+ * non e' dichiarata al piu' threshold byte restano in buffer finche' non si sa se superano la soglia.
+ */
+class GzipResponseWrapper extends HttpServletResponseWrapper {
+
+    private final CompressionFilter filter;
+
+    private final int threshold;
+
+    private long contentLength = -1;
+
+    private CompressingOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    GzipResponseWrapper(HttpServletResponse response, CompressionFilter filter, int threshold) {
+        super(response);
+        this.filter = filter;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called for this response");
+        }
+        return stream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called for this response");
+            }
+            writer = new PrintWriter(new OutputStreamWriter(stream(), getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    // Content-Length si conosce solo dopo la decisione: compresso non e' piu' valido
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (outputStream != null && outputStream.decided && !outputStream.compressing) {
+            super.setContentLengthLong(len);
+        } else {
+            contentLength = len;
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value != null ? Long.parseLong(value) : -1);
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        } else if (outputStream != null) {
+            outputStream.flush();
+        }
+        if (outputStream == null || outputStream.decided) {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (outputStream != null && !outputStream.decided) {
+            outputStream.buffered = 0;
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        contentLength = -1;
+        if (outputStream != null && !outputStream.decided) {
+            outputStream.buffered = 0;
+        }
+    }
+
+    /**
+     * Chiude lo stream gzip (trailer compreso) o scrive il body rimasto sotto soglia
+     */
+    void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.finish();
+        } else if (contentLength >= 0) {
+            super.setContentLengthLong(contentLength);
+        }
+    }
+
+    private CompressingOutputStream stream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new CompressingOutputStream(getResponse().getOutputStream());
+        }
+        return outputStream;
+    }
+
+    private class CompressingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream target;
+
+        private byte[] buffer;
+        private int buffered;
+
+        private boolean decided;
+        private boolean compressing;
+        private boolean finished;
+
+        /**
+         * Stream effettivo dopo la decisione: il target o il GZIPOutputStream sopra di esso
+         */
+        private OutputStream out;
+
+        private long bytesIn;
+        private long bytesOut;
+
+        CompressingOutputStream(ServletOutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            if (!decided) {
+                if (!filter.isCompressible(GzipResponseWrapper.this, contentLength)) {
+                    decide(false);
+                } else if (contentLength >= 0 || buffered + len > threshold) {
+                    decide(true);
+                } else {
+                    if (buffer == null) {
+                        buffer = new byte[threshold];
+                    }
+                    System.arraycopy(b, off, buffer, buffered, len);
+                    buffered += len;
+                    return;
+                }
+            }
+            bytesIn += len;
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Sotto soglia il buffer resta in attesa: al piu' threshold byte
+            if (decided) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (!decided) {
+                // Body sotto soglia: esce non compresso con la sua lunghezza
+                decide(false);
+            }
+            if (compressing) {
+                ((GZIPOutputStream) out).finish();
+                filter.recordCompressed(bytesIn, bytesOut);
+            } else {
+                filter.recordSkipped();
+            }
+            out.flush();
+        }
+
+        private void decide(boolean compress) throws IOException {
+            decided = true;
+            compressing = compress;
+            if (compress) {
+                filter.applyCompressedHeaders(GzipResponseWrapper.this);
+                out = filter.gzip(new CountingOutputStream());
+            } else {
+                long length = contentLength >= 0 ? contentLength : (finished ? buffered : -1);
+                if (length >= 0) {
+                    GzipResponseWrapper.super.setContentLengthLong(length);
+                }
+                out = target;
+            }
+            if (buffered > 0) {
+                bytesIn += buffered;
+                out.write(buffer, 0, buffered);
+                buffered = 0;
+            }
+            buffer = null;
+        }
+
+        @Override
+        public boolean isReady() {
+            return target.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            target.setWriteListener(writeListener);
+        }
+
+        /**
+         * Conta i byte compressi che escono verso il client
+         */
+        private class CountingOutputStream extends OutputStream {
+
+            @Override
+            public void write(int b) throws IOException {
+                target.write(b);
+                bytesOut++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                target.write(b, off, len);
+                bytesOut += len;
+            }
+
+            @Override
+            public void flush() throws IOException {
+                target.flush();
+            }
+        }
+    }
+}
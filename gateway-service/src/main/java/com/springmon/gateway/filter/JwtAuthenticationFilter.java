@@ -1,6 +1,9 @@
 package com.springmon.gateway.filter;
 
+import com.springmon.gateway.routing.RouteTable;
+import com.springmon.gateway.service.InternalIdentitySigner;
 import com.springmon.gateway.service.JwtValidationService;
+import com.springmon.gateway.service.VerifiedClaims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -29,20 +32,36 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
+    /**
+     * Attributo di request con i claims gia' verificati dal filtro
+     */
+    public static final String VERIFIED_CLAIMS_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".VERIFIED_CLAIMS";
+
     @Autowired
     private JwtValidationService jwtValidationService;
 
+    @Autowired
+    private RouteTable routeTable;
+
+    @Autowired
+    private InternalIdentitySigner internalIdentitySigner;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
                                   HttpServletResponse response, 
                                   FilterChain filterChain) throws ServletException, IOException {
         
         try {
-            String jwt = getJwtFromRequest(request);
+            // I claims possono essere gia' stati verificati dal RateLimitFilter
+            VerifiedClaims claims = (VerifiedClaims) request.getAttribute(VERIFIED_CLAIMS_ATTRIBUTE);
+            if (claims == null) {
+                String jwt = getJwtFromRequest(request);
+                claims = StringUtils.hasText(jwt) ? jwtValidationService.verify(jwt) : null;
+            }
 
-            if (StringUtils.hasText(jwt) && jwtValidationService.validateToken(jwt)) {
-                String username = jwtValidationService.getUsernameFromToken(jwt);
-                String roles = jwtValidationService.getRolesFromToken(jwt);
+            if (claims != null) {
+                String username = claims.getSubject();
+                String roles = claims.getRoles();
 
                 if (StringUtils.hasText(username)) {
                     // Crea authorities dal ruolo
@@ -57,6 +76,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
                     // Imposta il context di sicurezza
                     SecurityContextHolder.getContext().setAuthentication(authentication);
+                    request.setAttribute(VERIFIED_CLAIMS_ATTRIBUTE, claims);
+
+                    // Identita' firmata per i servizi interni, che cosi' non ri-verificano il JWT
+                    if (internalIdentitySigner.isEnabled()) {
+                        request.setAttribute(InternalIdentitySigner.ATTRIBUTE, internalIdentitySigner.sign(claims, request));
+                    }
                     
                     logger.debug("Authentication set for user: {}", username);
                 }
@@ -81,14 +106,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
 
     /**
-     * Esclude i path pubblici dalla validazione JWT
+     * Esclude i path pubblici dalla validazione JWT (rotte con auth-required=false ed endpoint locali).
+     * Gli endpoint actuator sono serviti solo sulla porta di management (SecurityConfig).
      */
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
         String path = request.getRequestURI();
-        return path.startsWith("/api/auth/") || 
-               path.equals("/api/health") || 
+        return path.equals("/api/health") ||
                path.equals("/api/info") ||
-               path.startsWith("/actuator/");
+               routeTable.isPublicRoute(request);
     }
 }
@@ -0,0 +1,157 @@
+package com.springmon.gateway.filter;
+
+import com.springmon.gateway.routing.RateLimit;
+import com.springmon.gateway.routing.Route;
+import com.springmon.gateway.routing.RouteTable;
+import com.springmon.gateway.service.JwtValidationService;
+import com.springmon.gateway.service.VerifiedClaims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Admission control del gateway, prima del filtro JWT: un token bucket per rotta e client.
+ * Il client e' il subject del JWT sulle rotte protette e l'indirizzo remoto sulle pubbliche
+ * (o se il token manca o non e' valido). Oltre il limite risponde 429 senza inoltrare la richiesta.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    static final String LIMIT_HEADER = "X-RateLimit-Limit";
+    static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    static final String RESET_HEADER = "X-RateLimit-Reset";
+
+    @Value("${gateway.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${gateway.rate-limit.default-replenish-rate:0}")
+    private double defaultReplenishRate;
+
+    @Value("${gateway.rate-limit.default-burst-capacity:0}")
+    private int defaultBurstCapacity;
+
+    @Value("${gateway.rate-limit.max-keys:100000}")
+    private int maxKeys;
+
+    @Autowired
+    private RouteTable routeTable;
+
+    @Autowired
+    private JwtValidationService jwtValidationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private RateLimiter rateLimiter;
+
+    /**
+     * Limite delle rotte senza rate-limit proprio, null se non configurato
+     */
+    private RateLimit defaultLimit;
+
+    @PostConstruct
+    public void init() {
+        this.rateLimiter = new RateLimiter(maxKeys);
+        this.defaultLimit = defaultReplenishRate > 0
+                ? new RateLimit(defaultReplenishRate, Math.max(1, defaultBurstCapacity))
+                : null;
+
+        FunctionCounter.builder("gateway.ratelimit.requests", rateLimiter, RateLimiter::allowedCount)
+                .tags("result", "allowed")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.ratelimit.requests", rateLimiter, RateLimiter::rejectedCount)
+                .tags("result", "rejected")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.ratelimit.evictions", rateLimiter, RateLimiter::evictedCount)
+                .register(meterRegistry);
+        Gauge.builder("gateway.ratelimit.keys", rateLimiter, RateLimiter::size)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        Route route = routeTable.match(request);
+        RateLimit limit = route == null ? null
+                : route.getRateLimit() != null ? route.getRateLimit() : defaultLimit;
+        if (limit == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long decision = rateLimiter.tryAcquire(route.getId(), clientKey(request, route), limit, System.nanoTime());
+        response.setHeader(LIMIT_HEADER, String.valueOf(limit.getBurstCapacity()));
+
+        if (RateLimiter.isAllowed(decision)) {
+            response.setHeader(REMAINING_HEADER, String.valueOf(decision));
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfterSeconds = Math.max(1, (-decision + 999_999_999L) / 1_000_000_000L);
+        Counter.builder("gateway.ratelimit.rejected")
+                .tags("route", route.getId())
+                .register(meterRegistry)
+                .increment();
+
+        response.setStatus(429);
+        response.setHeader(REMAINING_HEADER, "0");
+        response.setHeader(RESET_HEADER, String.valueOf(retryAfterSeconds));
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write(String.format(
+            "{\"error\":\"Too Many Requests\",\"message\":\"Rate limit exceeded for route %s\",\"status\":429}",
+            route.getId()
+        ));
+    }
+
+    /**
+     * Subject JWT verificato sulle rotte protette, altrimenti indirizzo remoto
+     * (che rispetta server.forward-headers-strategy dietro un proxy fidato).
+     * I claims verificati restano sulla richiesta per il filtro JWT.
+     */
+    private String clientKey(HttpServletRequest request, Route route) {
+        if (route.isAuthRequired()) {
+            String bearerToken = request.getHeader(HttpHeaders.AUTHORIZATION);
+            if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+                VerifiedClaims claims = jwtValidationService.verify(bearerToken.substring(7));
+                if (claims != null && StringUtils.hasText(claims.getSubject())) {
+                    request.setAttribute(JwtAuthenticationFilter.VERIFIED_CLAIMS_ATTRIBUTE, claims);
+                    return "sub:" + claims.getSubject();
+                }
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    /**
+     * Rimuove periodicamente i bucket inattivi (tornati pieni)
+     */
+    @Scheduled(fixedDelayString = "${gateway.rate-limit.sweep-interval-ms:10000}")
+    public void evictIdleBuckets() {
+        rateLimiter.evictIdle(System.nanoTime());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
+        return !enabled;
+    }
+}
@@ -0,0 +1,145 @@
+package com.springmon.gateway.filter;
+
+import com.springmon.gateway.routing.RateLimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket per (rotta, client) senza lock, nella forma GCRA: lo stato di ogni bucket e' un solo
+ * long (theoretical arrival time) aggiornato con CAS. I bucket stanno in una cache Caffeine limitata
+ * a maxKeys: oltre il limite viene rimosso il bucket usato meno di recente e meno spesso, quindi ogni
+ * client e' sempre tracciato e limitato. Un bucket tornato pieno equivale a un bucket assente
+ * e viene rimosso da evictIdle().
+ */
+public class RateLimiter {
+
+    private final Cache<Key, Bucket> buckets;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public RateLimiter(int maxKeys) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxKeys))
+                .evictionListener((Key key, Bucket bucket, RemovalCause cause) -> evicted.increment())
+                .build();
+    }
+
+    /**
+     * Consuma un token dal bucket del client sulla rotta.
+     *
+     * @return se >= 0 la richiesta e' ammessa e il valore e' il numero di token rimasti;
+     *         se < 0 la richiesta va rifiutata e -valore e' l'attesa in nanosecondi per il prossimo token
+     */
+    public long tryAcquire(String routeId, String client, RateLimit limit, long nowNanos) {
+        Bucket bucket = buckets.get(new Key(routeId, client), k -> new Bucket(nowNanos));
+
+        long interval = limit.emissionIntervalNanos();
+        long tolerance = interval * limit.getBurstCapacity();
+        while (true) {
+            long tat = bucket.tat;
+            // Confronti per differenza: System.nanoTime() puo' essere negativo o andare in overflow
+            long newTat = (tat - nowNanos > 0 ? tat : nowNanos) + interval;
+            long allowAt = newTat - tolerance;
+            if (allowAt - nowNanos > 0) {
+                rejected.increment();
+                return -(allowAt - nowNanos);
+            }
+            if (Bucket.TAT.compareAndSet(bucket, tat, newTat)) {
+                allowed.increment();
+                return (tolerance - (newTat - nowNanos)) / interval;
+            }
+        }
+    }
+
+    /**
+     * Rimuove i bucket tornati pieni. Una richiesta concorrente su un bucket appena rimosso
+     * conta su quella copia: al piu' un token in piu' per il client.
+     */
+    public int evictIdle(long nowNanos) {
+        int removed = 0;
+        for (var it = buckets.asMap().values().iterator(); it.hasNext(); ) {
+            if (it.next().tat - nowNanos <= 0) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public static boolean isAllowed(long decision) {
+        return decision >= 0;
+    }
+
+    public long size() {
+        return buckets.estimatedSize();
+    }
+
+    public long allowedCount() {
+        return allowed.sum();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Bucket ancora attivi rimossi per far posto a nuovi client (mappa piena)
+     */
+    public long evictedCount() {
+        return evicted.sum();
+    }
+
+    private static final class Bucket {
+
+        static final VarHandle TAT;
+
+        static {
+            try {
+                TAT = MethodHandles.lookup().findVarHandle(Bucket.class, "tat", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        volatile long tat;
+
+        Bucket(long nowNanos) {
+            this.tat = nowNanos;
+        }
+    }
+
+    private static final class Key {
+
+        private final String routeId;
+        private final String client;
+        private final int hash;
+
+        Key(String routeId, String client) {
+            this.routeId = routeId;
+            this.client = client;
+            int h = 31 * routeId.hashCode() + client.hashCode();
+            this.hash = h ^ (h >>> 16);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && routeId.equals(other.routeId) && client.equals(other.client);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
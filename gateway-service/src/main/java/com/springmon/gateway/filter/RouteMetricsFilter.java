@@ -0,0 +1,123 @@
+package com.springmon.gateway.filter;
+
+import com.springmon.gateway.routing.Route;
+import com.springmon.gateway.routing.RouteTable;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latenza end-to-end delle richieste proxate per rotta e classe di status (gateway.requests),
+ * misurata prima di security e rate limiting: comprende anche le risposte 401 e 429.
+ * Per le richieste asincrone la misura si chiude al completamento della risposta.
+ * I Timer sono creati alla prima richiesta di ogni coppia rotta/status: la registrazione non alloca.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RouteMetricsFilter extends OncePerRequestFilter {
+
+    private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private final RouteTable routeTable;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Timer per rotta, indicizzati per status / 100 - 1
+     */
+    private final ConcurrentHashMap<String, Timer[]> timers = new ConcurrentHashMap<>();
+
+    public RouteMetricsFilter(RouteTable routeTable, MeterRegistry meterRegistry) {
+        this.routeTable = routeTable;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Route route = routeTable.match(request);
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(route.getId(), start, response));
+            } else {
+                record(route.getId(), failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus(),
+                        System.nanoTime() - start);
+            }
+        }
+    }
+
+    private void record(String routeId, int status, long nanos) {
+        timer(routeId, status).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String routeId, int status) {
+        int index = Math.min(Math.max(status / 100, 1), 5) - 1;
+        Timer[] routeTimers = timers.get(routeId);
+        if (routeTimers == null) {
+            routeTimers = timers.computeIfAbsent(routeId, id -> new Timer[STATUS_CLASSES.length]);
+        }
+        Timer timer = routeTimers[index];
+        if (timer == null) {
+            // Corsa innocua: il registry restituisce lo stesso Timer per nome e tag
+            timer = Timer.builder("gateway.requests")
+                    .description("Richieste proxate dal gateway, dalla ricezione all'ultimo byte della risposta")
+                    .tags("route", routeId, "status", STATUS_CLASSES[index])
+                    .register(meterRegistry);
+            routeTimers[index] = timer;
+        }
+        return timer;
+    }
+
+    private class CompletionListener implements AsyncListener {
+
+        private final String routeId;
+        private final long start;
+        private final HttpServletResponse response;
+
+        CompletionListener(String routeId, long start, HttpServletResponse response) {
+            this.routeId = routeId;
+            this.start = start;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(routeId, response.getStatus(), System.nanoTime() - start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
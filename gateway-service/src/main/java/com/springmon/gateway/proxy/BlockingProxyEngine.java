@@ -0,0 +1,140 @@
+package com.springmon.gateway.proxy;
+
+import com.springmon.common.tracing.Span;
+import com.springmon.common.tracing.Tracer;
+import com.springmon.gateway.routing.Route;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.hc.core5.http.io.EofSensorInputStream;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Motore bloccante: la chiamata occupa il thread Tomcat fino alla risposta.
+ * I body passano in streaming tra lo stream servlet e la connessione del pool.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.proxy.engine", havingValue = "blocking", matchIfMissing = true)
+public class BlockingProxyEngine implements ProxyEngine {
+
+    private final UpstreamRequestFactory upstreamRequestFactory;
+
+    /**
+     * Una fabbrica per ogni timeout di rotta distinto (poche voci)
+     */
+    private final ConcurrentHashMap<Duration, ClientHttpRequestFactory> requestFactories = new ConcurrentHashMap<>();
+
+    private final UpstreamTimings upstreamTimings;
+
+    private final Tracer tracer;
+
+    public BlockingProxyEngine(UpstreamRequestFactory upstreamRequestFactory, UpstreamTimings upstreamTimings,
+                               Tracer tracer) {
+        this.upstreamRequestFactory = upstreamRequestFactory;
+        this.upstreamTimings = upstreamTimings;
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Mono<Void> forward(Route route, HttpMethod method, URI uri,
+                              HttpServletRequest request, HttpServletResponse response) {
+        return Mono.fromCallable(() -> {
+            exchange(route, method, uri, request, response);
+            return null;
+        });
+    }
+
+    @Override
+    public Mono<UpstreamResponse> fetch(Route route, URI uri, HttpHeaders headers, int maxBodyBytes) {
+        return Mono.fromCallable(() -> {
+            long start = System.nanoTime();
+            ClientHttpRequest upstreamRequest = requestFactory(route.getTimeout()).createRequest(uri, HttpMethod.GET);
+            upstreamRequest.getHeaders().addAll(headers);
+            Span span = ProxyHeaders.propagateTrace(
+                    tracer.startClientSpan(headers.getFirst(Tracer.TRACEPARENT), HttpMethod.GET.name()),
+                    route, uri, upstreamRequest.getHeaders());
+            UpstreamResponse result;
+            try (ClientHttpResponse upstreamResponse = upstreamRequest.execute()) {
+                upstreamTimings.recordTimeToFirstByte(route.getUpstream(), System.nanoTime() - start);
+                int status = upstreamResponse.getStatusCode().value();
+                HttpHeaders responseHeaders = HttpHeaders.readOnlyHttpHeaders(upstreamResponse.getHeaders());
+                InputStream bodyStream = upstreamResponse.getBody();
+                byte[] body = upstreamResponse.getHeaders().getContentLength() > maxBodyBytes
+                        ? null : bodyStream.readNBytes(maxBodyBytes + 1);
+                if (body != null && body.length <= maxBodyBytes) {
+                    result = new UpstreamResponse(status, responseHeaders, body);
+                } else {
+                    abort(bodyStream);
+                    result = UpstreamResponse.oversized(status, responseHeaders);
+                }
+                span.setAttribute("http.response.status_code", result.getStatus());
+            } catch (IOException | RuntimeException e) {
+                span.recordError(e).end();
+                throw e;
+            }
+            span.end();
+            upstreamTimings.recordTotal(route.getUpstream(), System.nanoTime() - start);
+            return result;
+        });
+    }
+
+    /**
+     * Chiude la connessione senza leggere il resto del body: la chiusura della risposta lo consumerebbe
+     * fino in fondo per riusare la connessione
+     */
+    private static void abort(InputStream body) throws IOException {
+        if (body instanceof EofSensorInputStream sensor) {
+            sensor.abort();
+        }
+    }
+
+    private ClientHttpRequestFactory requestFactory(Duration timeout) {
+        return requestFactories.computeIfAbsent(timeout, upstreamRequestFactory::withResponseTimeout);
+    }
+
+    private void exchange(Route route, HttpMethod method, URI uri,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long start = System.nanoTime();
+        ClientHttpRequest upstreamRequest = requestFactory(route.getTimeout()).createRequest(uri, method);
+        ProxyHeaders.copyRequestHeaders(request, upstreamRequest.getHeaders());
+        Span span = ProxyHeaders.propagateTrace(
+                tracer.startClientSpan((Span) request.getAttribute(Tracer.SPAN_ATTRIBUTE), method.name()),
+                route, uri, upstreamRequest.getHeaders());
+
+        if (ProxyHeaders.hasBody(request)) {
+            if (upstreamRequest instanceof StreamingHttpOutputMessage streaming) {
+                streaming.setBody(out -> StreamUtils.copy(request.getInputStream(), out));
+            } else {
+                StreamUtils.copy(request.getInputStream(), upstreamRequest.getBody());
+            }
+        }
+
+        try (ClientHttpResponse upstreamResponse = upstreamRequest.execute()) {
+            upstreamTimings.recordTimeToFirstByte(route.getUpstream(), System.nanoTime() - start);
+            response.setStatus(upstreamResponse.getStatusCode().value());
+            span.setAttribute("http.response.status_code", upstreamResponse.getStatusCode().value());
+            ProxyHeaders.copyResponseHeaders(upstreamResponse.getHeaders(), response);
+            StreamUtils.copy(upstreamResponse.getBody(), response.getOutputStream());
+        } catch (IOException | RuntimeException e) {
+            span.recordError(e).end();
+            throw e;
+        }
+        span.end();
+        upstreamTimings.recordTotal(route.getUpstream(), System.nanoTime() - start);
+    }
+
+}
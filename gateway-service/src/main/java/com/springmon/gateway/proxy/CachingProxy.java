@@ -0,0 +1,364 @@
+package com.springmon.gateway.proxy;
+
+import com.springmon.gateway.filter.JwtAuthenticationFilter;
+import com.springmon.gateway.routing.CachePolicy;
+import com.springmon.gateway.routing.Route;
+import com.springmon.gateway.service.VerifiedClaims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+
+/**
+ * Cache del gateway per le rotte con gateway.routes[n].cache: le GET sono servite dalla cache
+ * per subject JWT con ETag forte (If-None-Match -> 304 senza contattare l'upstream).
+ * Scaduto il ttl la risposta resta servibile stale per stale-grace mentre viene ricaricata
+ * in background, cosi' un upstream non disponibile non si vede dal client.
+ * Le GET identiche concorrenti che vanno all'upstream (miss in cache o rotte con coalesce=true)
+ * condividono un'unica chiamata.
+ */
+@Component
+public class CachingProxy {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingProxy.class);
+
+    private static final String CACHE_NAME = "gateway-responses";
+
+    static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    @Value("${gateway.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${gateway.coalescing.enabled:true}")
+    private boolean coalescingEnabled;
+
+    @Value("${gateway.hedging.enabled:true}")
+    private boolean hedgingEnabled;
+
+    @Value("${gateway.cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${gateway.cache.max-body-bytes:65536}")
+    private int maxBodyBytes;
+
+    private final ProxyEngine proxyEngine;
+
+    private final UpstreamResilience upstreamResilience;
+
+    private final UpstreamLoadBalancer upstreamLoadBalancer;
+
+    private final UpstreamHedging upstreamHedging;
+
+    private final MeterRegistry meterRegistry;
+
+    private ResponseCache cache;
+
+    private final SingleFlight<UpstreamResponse> singleFlight = new SingleFlight<>();
+
+    private Counter refreshFailures;
+
+    private Counter oversized;
+
+    public CachingProxy(ProxyEngine proxyEngine, UpstreamResilience upstreamResilience,
+                        UpstreamLoadBalancer upstreamLoadBalancer, UpstreamHedging upstreamHedging,
+                        MeterRegistry meterRegistry) {
+        this.proxyEngine = proxyEngine;
+        this.upstreamResilience = upstreamResilience;
+        this.upstreamLoadBalancer = upstreamLoadBalancer;
+        this.upstreamHedging = upstreamHedging;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.cache = new ResponseCache(maxBytes);
+        if (hedgingEnabled && !proxyEngine.abortsOnCancel()) {
+            // La chiamata perdente non si puo' interrompere: resterebbe in corso fino alla risposta
+            logger.info("Hedging disabled: it requires gateway.proxy.engine=reactive");
+            hedgingEnabled = false;
+        }
+
+        FunctionCounter.builder("cache.gets", cache, ResponseCache::hitCount)
+                .tags("cache", CACHE_NAME, "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", cache, ResponseCache::staleHitCount)
+                .tags("cache", CACHE_NAME, "result", "stale")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", cache, ResponseCache::missCount)
+                .tags("cache", CACHE_NAME, "result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", cache, ResponseCache::evictionCount)
+                .tags("cache", CACHE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", cache, ResponseCache::size)
+                .tags("cache", CACHE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("gateway.cache.bytes", cache, ResponseCache::weightedSize)
+                .description("Byte stimati delle risposte in cache (body, header e chiave), limitati da max-bytes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.coalescing.requests", singleFlight, SingleFlight::leaderCount)
+                .description("GET inviate all'upstream (leader) e GET accodate a una chiamata gia' in volo")
+                .tags("result", "leader")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.coalescing.requests", singleFlight, SingleFlight::collapsedCount)
+                .tags("result", "collapsed")
+                .register(meterRegistry);
+        Gauge.builder("gateway.coalescing.in.flight", singleFlight, SingleFlight::inFlightCount)
+                .register(meterRegistry);
+        refreshFailures = Counter.builder("gateway.cache.refresh.failures")
+                .description("Ricariche in background fallite (resta servita la risposta stale)")
+                .register(meterRegistry);
+        oversized = Counter.builder("gateway.cache.oversized")
+                .description("GET con body oltre max-body-bytes, ripetute in streaming senza cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Indica se la richiesta va servita da qui (cache, coalescing o hedging) invece che in streaming
+     */
+    public boolean handles(Route route, HttpServletRequest request) {
+        return "GET".equals(request.getMethod())
+                && ((enabled && route.getCache() != null) || (coalescingEnabled && route.isCoalesce())
+                        || (hedgingEnabled && route.getHedge() != null));
+    }
+
+    /**
+     * Serve la GET dalla cache oppure dall'upstream, memorizzando le risposte 200
+     *
+     * @param target path e query string della richiesta, indipendenti dall'istanza dell'upstream
+     */
+    public Mono<Void> serve(Route route, String target, HttpServletRequest request, HttpServletResponse response) {
+        String key = cacheKey(route, target, request);
+        CachePolicy policy = enabled && key != null ? route.getCache() : null;
+        if (policy == null) {
+            return fetch(route, target, key, request)
+                    .flatMap(upstreamResponse -> respond(route, target, upstreamResponse, null, request, response));
+        }
+
+        long now = System.currentTimeMillis();
+        ResponseCache.Entry entry = cache.get(key, now);
+        if (entry != null) {
+            if (entry.isFresh(now)) {
+                cache.recordHit();
+                write(entry, "HIT", request, response);
+            } else {
+                cache.recordStaleHit();
+                if (entry.tryStartRefresh()) {
+                    refresh(route, target, key, request, policy, entry);
+                }
+                write(entry, "STALE", request, response);
+            }
+            return Mono.empty();
+        }
+
+        cache.recordMiss();
+        return fetch(route, target, key, request)
+                .flatMap(upstreamResponse -> {
+                    ResponseCache.Entry stored = store(key, upstreamResponse, policy);
+                    return respond(route, target, upstreamResponse, stored, request, response);
+                });
+    }
+
+    /**
+     * Risposta al client dal percorso in primo piano: dalla entry appena memorizzata, dalla risposta
+     * letta in memoria o, se questa superava max-body-bytes, ripetendo la GET in streaming
+     */
+    private Mono<Void> respond(Route route, String target, UpstreamResponse upstreamResponse,
+                               ResponseCache.Entry stored, HttpServletRequest request, HttpServletResponse response) {
+        if (upstreamResponse.isOversized()) {
+            oversized.increment();
+            return upstreamResilience.execute(route, response, upstreamLoadBalancer.execute(route, response,
+                    instance -> {
+                        request.setAttribute(UpstreamInstance.ATTRIBUTE, instance);
+                        return proxyEngine.forward(route, HttpMethod.GET, instance.resolve(target), request, response);
+                    }));
+        }
+        recordInstance(upstreamResponse, request);
+        if (stored != null) {
+            write(stored, "MISS", request, response);
+        } else {
+            writeThrough(upstreamResponse, response);
+        }
+        return Mono.empty();
+    }
+
+    /**
+     * Rimuove periodicamente le entry oltre la finestra stale
+     */
+    @Scheduled(fixedDelayString = "${gateway.cache.sweep-interval-ms:30000}")
+    public void evictExpired() {
+        cache.evictExpired();
+    }
+
+    /**
+     * Gli header sono copiati qui, sul thread della richiesta: la ricarica prosegue in background
+     * dopo la risposta e non tocca piu' la richiesta
+     */
+    private void refresh(Route route, String target, String key, HttpServletRequest request,
+                         CachePolicy policy, ResponseCache.Entry stale) {
+        fetch(route, target, key, request)
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(
+                        upstreamResponse -> {
+                            if (store(key, upstreamResponse, policy) == null) {
+                                stale.refreshFailed();
+                                refreshFailures.increment();
+                            }
+                        },
+                        e -> {
+                            stale.refreshFailed();
+                            refreshFailures.increment();
+                            logger.debug("Background refresh of {} failed: {}", target, e.toString());
+                        });
+    }
+
+    /**
+     * GET verso un'istanza dell'upstream attraverso circuit breaker e bulkhead, con hedging se la rotta
+     * lo prevede. Le richieste concorrenti con stessa chiave e stessi header di negoziazione
+     * condividono la chiamata in volo; senza chiave (key null) la chiamata e' propria. La richiesta viene letta solo all'assemblaggio (header):
+     * la chiamata puo' proseguire su altri thread e oltre la risposta al client (refresh).
+     */
+    private Mono<UpstreamResponse> fetch(Route route, String target, String key, HttpServletRequest request) {
+        HttpHeaders headers = upstreamHeaders(request);
+        UpstreamHedging.Attempt<UpstreamResponse> attempt = (exclude, chosen) -> upstreamResilience.execute(route,
+                upstreamLoadBalancer.execute(route, exclude, instance -> {
+                    chosen.accept(instance);
+                    return proxyEngine.fetch(route, instance.resolve(target), headers, maxBodyBytes)
+                            .map(upstreamResponse -> upstreamResponse.withInstance(instance));
+                }, UpstreamResponse::getStatus),
+                UpstreamResponse::getStatus);
+        Supplier<Mono<UpstreamResponse>> call = hedgingEnabled && route.getHedge() != null
+                ? () -> upstreamHedging.execute(route, attempt)
+                : () -> attempt.run(null, instance -> { });
+        if (!coalescingEnabled || key == null) {
+            return call.get();
+        }
+        String flightKey = key + '\n' + headers.getFirst(HttpHeaders.ACCEPT)
+                + '\n' + headers.getFirst(HttpHeaders.ACCEPT_LANGUAGE);
+        return singleFlight.execute(flightKey, call);
+    }
+
+    /**
+     * Memorizza solo le risposte 200 entro max-body-bytes che non dichiarano no-store
+     */
+    private ResponseCache.Entry store(String key, UpstreamResponse upstreamResponse, CachePolicy policy) {
+        String cacheControl = upstreamResponse.getHeaders().getCacheControl();
+        if (upstreamResponse.getStatus() != 200
+                || upstreamResponse.isOversized()
+                || (cacheControl != null && cacheControl.contains("no-store"))) {
+            return null;
+        }
+        return cache.put(key, upstreamResponse, policy.getTtl().toMillis(),
+                policy.getStaleGrace().toMillis(), System.currentTimeMillis());
+    }
+
+    /**
+     * Header verso l'upstream: senza condizionali (serve il body completo)
+     * e senza Accept-Encoding (in cache solo body non compressi)
+     */
+    private static HttpHeaders upstreamHeaders(HttpServletRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        ProxyHeaders.copyRequestHeaders(request, headers);
+        headers.remove(HttpHeaders.IF_NONE_MATCH);
+        headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+        headers.remove(HttpHeaders.ACCEPT_ENCODING);
+        return headers;
+    }
+
+    /**
+     * Istanza dell'upstream per l'access log; solo nel percorso che risponde al client
+     */
+    private static void recordInstance(UpstreamResponse upstreamResponse, HttpServletRequest request) {
+        if (upstreamResponse.getInstance() != null) {
+            request.setAttribute(UpstreamInstance.ATTRIBUTE, upstreamResponse.getInstance());
+        }
+    }
+
+    /**
+     * Rotta, subject verificato, path e query: ogni utente ha le proprie entry.
+     * Null (niente cache ne' coalescing) se la richiesta porta credenziali non verificate dal gateway,
+     * come Authorization o cookie su una rotta pubblica: la risposta puo' dipendere dal chiamante
+     * e non va condivisa con le richieste anonime.
+     */
+    private static String cacheKey(Route route, String target, HttpServletRequest request) {
+        VerifiedClaims claims = (VerifiedClaims) request.getAttribute(JwtAuthenticationFilter.VERIFIED_CLAIMS_ATTRIBUTE);
+        if (claims == null && (request.getHeader(HttpHeaders.AUTHORIZATION) != null
+                || request.getHeader(HttpHeaders.COOKIE) != null)) {
+            return null;
+        }
+        String subject = claims != null ? claims.getSubject() : "";
+        return route.getId() + '\n' + subject + '\n' + target;
+    }
+
+    private static void write(ResponseCache.Entry entry, String cacheStatus,
+                              HttpServletRequest request, HttpServletResponse response) {
+        response.setHeader(CACHE_STATUS_HEADER, cacheStatus);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), entry.getEtag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, entry.getEtag());
+            String cacheControl = entry.getHeaders().getCacheControl();
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl != null ? cacheControl : "private, no-cache");
+            return;
+        }
+
+        response.setStatus(entry.getStatus());
+        ProxyHeaders.copyResponseHeaders(entry.getHeaders(), response);
+        response.setHeader(HttpHeaders.ETAG, entry.getEtag());
+        if (entry.getHeaders().getCacheControl() == null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        }
+        response.setContentLength(entry.getBody().length);
+        writeBody(entry.getBody(), response);
+    }
+
+    private static void writeThrough(UpstreamResponse upstreamResponse, HttpServletResponse response) {
+        response.setStatus(upstreamResponse.getStatus());
+        ProxyHeaders.copyResponseHeaders(upstreamResponse.getHeaders(), response);
+        response.setContentLength(upstreamResponse.getBody().length);
+        writeBody(upstreamResponse.getBody(), response);
+    }
+
+    private static void writeBody(byte[] body, HttpServletResponse response) {
+        try {
+            response.getOutputStream().write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Confronto debole di If-None-Match (RFC 9110): "*" oppure uno degli ETag elencati
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
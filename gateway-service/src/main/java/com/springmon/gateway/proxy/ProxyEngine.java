@@ -0,0 +1,42 @@
+package com.springmon.gateway.proxy;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import com.springmon.gateway.routing.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * Motore che esegue le chiamate verso i servizi interni.
+ * L'implementazione e' selezionata con gateway.proxy.engine (blocking | reactive).
+ */
+public interface ProxyEngine {
+
+    /**
+     * Inoltra la richiesta del client all'URI indicato e scrive status, header e body
+     * della risposta direttamente sulla risposta servlet, copiando i body come byte
+     * senza deserializzarli. La chiamata parte alla sottoscrizione del Mono.
+     *
+     * @param route rotta della richiesta (timeout di risposta e nome dell'upstream per le metriche)
+     */
+    Mono<Void> forward(Route route, HttpMethod method, URI uri,
+                       HttpServletRequest request, HttpServletResponse response);
+
+    /**
+     * Esegue una GET verso l'URI con gli header indicati e restituisce la risposta
+     * completa in memoria. Pensata per risposte piccole (cache del gateway): del body si leggono
+     * al piu' maxBodyBytes + 1 byte, oltre il limite la connessione viene chiusa e la risposta
+     * e' UpstreamResponse.oversized.
+     */
+    Mono<UpstreamResponse> fetch(Route route, URI uri, HttpHeaders headers, int maxBodyBytes);
+
+    /**
+     * Indica se cancellare il Mono di fetch interrompe davvero la chiamata HTTP (richiesto dall'hedging)
+     */
+    default boolean abortsOnCancel() {
+        return false;
+    }
+}
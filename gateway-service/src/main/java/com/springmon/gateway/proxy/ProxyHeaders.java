@@ -0,0 +1,104 @@
+package com.springmon.gateway.proxy;
+
+import com.springmon.common.tracing.Span;
+import com.springmon.common.tracing.Tracer;
+import com.springmon.gateway.routing.Route;
+import com.springmon.gateway.service.InternalIdentitySigner;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+
+import java.net.URI;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Copia degli header tra richiesta in ingresso, servizio interno e risposta al client.
+ * Gli header hop-by-hop restano sulla singola connessione; i CORS sono gestiti dal gateway.
+ */
+public final class ProxyHeaders {
+
+    private static final Set<String> HOP_BY_HOP = Set.of(
+        "connection", "keep-alive", "proxy-authenticate", "proxy-authorization",
+        "te", "trailer", "transfer-encoding", "upgrade", "host"
+    );
+
+    private static final String CORS_PREFIX = "access-control-";
+
+    private static final String INTERNAL_IDENTITY = InternalIdentitySigner.HEADER.toLowerCase(Locale.ROOT);
+
+    private ProxyHeaders() {
+    }
+
+    /**
+     * Copia gli header end-to-end della richiesta del client verso il servizio interno.
+     * L'identita' interna arriva solo dal gateway: quella eventualmente inviata dal client viene scartata.
+     * Con il tracing attivo il traceparent inoltrato ha come parent lo span server del gateway.
+     */
+    public static void copyRequestHeaders(HttpServletRequest request, HttpHeaders target) {
+        Enumeration<String> names = request.getHeaderNames();
+        while (names.hasMoreElements()) {
+            String name = names.nextElement();
+            String lowerName = name.toLowerCase(Locale.ROOT);
+            if (HOP_BY_HOP.contains(lowerName) || lowerName.equals(INTERNAL_IDENTITY)) {
+                continue;
+            }
+            Enumeration<String> values = request.getHeaders(name);
+            while (values.hasMoreElements()) {
+                target.add(name, values.nextElement());
+            }
+        }
+
+        String identity = (String) request.getAttribute(InternalIdentitySigner.ATTRIBUTE);
+        if (identity != null) {
+            target.set(InternalIdentitySigner.HEADER, identity);
+        }
+        String requestId = (String) request.getAttribute(InternalIdentitySigner.REQUEST_ID_ATTRIBUTE);
+        if (requestId != null) {
+            target.set(InternalIdentitySigner.REQUEST_ID_HEADER, requestId);
+        }
+        Span span = (Span) request.getAttribute(Tracer.SPAN_ATTRIBUTE);
+        if (span != null) {
+            target.set(Tracer.TRACEPARENT, span.traceparent());
+        }
+    }
+
+    /**
+     * Copia gli header della risposta del servizio interno verso il client
+     */
+    public static void copyResponseHeaders(HttpHeaders source, HttpServletResponse response) {
+        for (var entry : source.entrySet()) {
+            String name = entry.getKey().toLowerCase(Locale.ROOT);
+            if (HOP_BY_HOP.contains(name) || name.startsWith(CORS_PREFIX)) {
+                continue;
+            }
+            List<String> values = entry.getValue();
+            for (String value : values) {
+                response.addHeader(entry.getKey(), value);
+            }
+        }
+    }
+
+    /**
+     * Indica se la richiesta del client ha un body da inoltrare
+     */
+    public static boolean hasBody(HttpServletRequest request) {
+        return request.getContentLengthLong() > 0 || request.getHeader(HttpHeaders.TRANSFER_ENCODING) != null;
+    }
+
+    /**
+     * Span client della chiamata verso l'upstream: se campionato diventa il parent nel traceparent inoltrato
+     */
+    public static Span propagateTrace(Span span, Route route, URI uri, HttpHeaders headers) {
+        if (span.isSampled()) {
+            headers.set(Tracer.TRACEPARENT, span.traceparent());
+            span.setAttribute("upstream", route.getUpstream())
+                    .setAttribute("server.address", uri.getHost())
+                    .setAttribute("server.port", uri.getPort())
+                    .setAttribute("url.path", uri.getRawPath());
+        }
+        return span;
+    }
+}
@@ -0,0 +1,142 @@
+package com.springmon.gateway.proxy;
+
+import com.springmon.common.tracing.Span;
+import com.springmon.common.tracing.Tracer;
+import com.springmon.gateway.routing.Route;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClientRequest;
+
+import java.net.URI;
+
+/**
+ * Motore non bloccante su WebClient/Reactor Netty: il thread Tomcat viene rilasciato
+ * (richiesta asincrona) e la risposta viene completata dagli event loop di Netty.
+ * I body viaggiano come DataBuffer, senza passare da un object graph.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.proxy.engine", havingValue = "reactive")
+public class ReactiveProxyEngine implements ProxyEngine {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Buffer della risposta upstream in attesa di essere scritti verso il client, per richiesta
+     */
+    private static final int WRITE_PREFETCH = 16;
+
+    private final WebClient webClient;
+
+    private final DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+    private final UpstreamTimings upstreamTimings;
+
+    private final Tracer tracer;
+
+    public ReactiveProxyEngine(WebClient upstreamWebClient, UpstreamTimings upstreamTimings, Tracer tracer) {
+        this.webClient = upstreamWebClient;
+        this.upstreamTimings = upstreamTimings;
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Mono<Void> forward(Route route, HttpMethod method, URI uri,
+                              HttpServletRequest request, HttpServletResponse response) {
+        // Richiesta costruita a ogni sottoscrizione: ogni tentativo ha il proprio span client
+        return Mono.defer(() -> {
+            Span span = tracer.startClientSpan((Span) request.getAttribute(Tracer.SPAN_ATTRIBUTE), method.name());
+            WebClient.RequestBodySpec upstreamRequest = webClient.method(method)
+                    .uri(uri)
+                    .headers(headers -> {
+                        ProxyHeaders.copyRequestHeaders(request, headers);
+                        ProxyHeaders.propagateTrace(span, route, uri, headers);
+                    })
+                    .httpRequest(httpRequest -> httpRequest.<HttpClientRequest>getNativeRequest()
+                            .responseTimeout(route.getTimeout()));
+
+            WebClient.RequestHeadersSpec<?> exchange = upstreamRequest;
+            if (ProxyHeaders.hasBody(request)) {
+                // La lettura dallo stream servlet e' bloccante: non deve girare sugli event loop
+                Flux<DataBuffer> body = DataBufferUtils
+                        .readInputStream(request::getInputStream, bufferFactory, BUFFER_SIZE)
+                        .subscribeOn(Schedulers.boundedElastic());
+                exchange = upstreamRequest.body(BodyInserters.fromDataBuffers(body));
+            }
+
+            long start = System.nanoTime();
+            return exchange.<Void>exchangeToMono(upstreamResponse -> {
+                upstreamTimings.recordTimeToFirstByte(route.getUpstream(), System.nanoTime() - start);
+                response.setStatus(upstreamResponse.statusCode().value());
+                span.setAttribute("http.response.status_code", upstreamResponse.statusCode().value());
+                ProxyHeaders.copyResponseHeaders(upstreamResponse.headers().asHttpHeaders(), response);
+                // La scrittura sull'OutputStream servlet e' bloccante (client lento): fuori dagli event loop
+                Flux<DataBuffer> body = upstreamResponse.body(BodyExtractors.toDataBuffers())
+                        .publishOn(Schedulers.boundedElastic(), WRITE_PREFETCH);
+                return Mono.fromCallable(response::getOutputStream)
+                        .flatMapMany(out -> DataBufferUtils.write(body, out))
+                        .doOnNext(DataBufferUtils::release)
+                        .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                        .then(Mono.fromRunnable(() ->
+                                upstreamTimings.recordTotal(route.getUpstream(), System.nanoTime() - start)));
+            }).doOnError(span::recordError).doFinally(signal -> span.end());
+        });
+    }
+
+    @Override
+    public Mono<UpstreamResponse> fetch(Route route, URI uri, HttpHeaders headers, int maxBodyBytes) {
+        return Mono.defer(() -> {
+            Span span = tracer.startClientSpan(headers.getFirst(Tracer.TRACEPARENT), HttpMethod.GET.name());
+            WebClient.RequestHeadersSpec<?> spec = webClient.get()
+                    .uri(uri)
+                    .headers(target -> {
+                        target.addAll(headers);
+                        ProxyHeaders.propagateTrace(span, route, uri, target);
+                    })
+                    .httpRequest(httpRequest -> httpRequest.<HttpClientRequest>getNativeRequest()
+                            .responseTimeout(route.getTimeout()));
+            long start = System.nanoTime();
+            return spec.exchangeToMono(upstreamResponse -> {
+                upstreamTimings.recordTimeToFirstByte(route.getUpstream(), System.nanoTime() - start);
+                span.setAttribute("http.response.status_code", upstreamResponse.statusCode().value());
+                int status = upstreamResponse.statusCode().value();
+                HttpHeaders responseHeaders = HttpHeaders.readOnlyHttpHeaders(upstreamResponse.headers().asHttpHeaders());
+                // join con limite: oltre maxBodyBytes i buffer sono rilasciati e la lettura cancellata
+                return DataBufferUtils.join(upstreamResponse.body(BodyExtractors.toDataBuffers()), maxBodyBytes)
+                        .map(buffer -> {
+                            byte[] body = new byte[buffer.readableByteCount()];
+                            buffer.read(body);
+                            DataBufferUtils.release(buffer);
+                            return new UpstreamResponse(status, responseHeaders, body);
+                        })
+                        .defaultIfEmpty(new UpstreamResponse(status, responseHeaders, new byte[0]))
+                        .onErrorResume(DataBufferLimitException.class,
+                                e -> Mono.just(UpstreamResponse.oversized(status, responseHeaders)));
+            }).doOnSuccess(ignored -> upstreamTimings.recordTotal(route.getUpstream(), System.nanoTime() - start))
+                    .doOnError(span::recordError)
+                    .doFinally(signal -> span.end());
+        });
+    }
+
+    /**
+     * La cancellazione chiude lo scambio su Reactor Netty e rilascia la connessione
+     */
+    @Override
+    public boolean abortsOnCancel() {
+        return true;
+    }
+}
@@ -0,0 +1,232 @@
+package com.springmon.gateway.proxy;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.http.HttpHeaders;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache concorrente delle risposte degli upstream, limitata dal totale dei byte trattenuti (body,
+ * header e chiave): oltre maxBytes Caffeine rimuove le entry meno utili in tempo costante, senza
+ * scorrere la mappa all'inserimento. Ogni entry e' fresca fino a freshUntil, poi resta utilizzabile
+ * come stale fino a staleUntil e viene rimossa dopo.
+ */
+public class ResponseCache {
+
+    /**
+     * Stima degli oggetti di contorno di ogni entry (Entry, UpstreamResponse, nodo della cache)
+     */
+    static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final Cache<String, Entry> entries;
+    private final long maxBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher(ResponseCache::weight)
+                .expireAfter(new UntilStale())
+                .evictionListener((key, entry, cause) -> evictions.increment())
+                .build();
+    }
+
+    /**
+     * Entry ancora utilizzabile (fresca o stale) per la chiave, altrimenti null
+     */
+    public Entry get(String key, long nowMillis) {
+        Entry entry = entries.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        // Caffeine rimuove le entry scadute in modo ritardato: il confronto con staleUntil resta esatto
+        if (entry.staleUntil <= nowMillis) {
+            if (entries.asMap().remove(key, entry)) {
+                evictions.increment();
+            }
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Inserisce la risposta; con la cache piena Caffeine rimuove altre entry fino a rientrare in maxBytes.
+     * Restituisce l'entry anche se, piu' grande dell'intera cache, non resta memorizzata.
+     */
+    public Entry put(String key, UpstreamResponse response, long ttlMillis, long staleGraceMillis, long nowMillis) {
+        Entry entry = new Entry(response, etag(response.getBody()),
+                nowMillis + ttlMillis, nowMillis + ttlMillis + staleGraceMillis);
+        entries.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Esegue subito la manutenzione di Caffeine: rimozione delle entry oltre la finestra stale
+     * e rispetto di maxBytes
+     */
+    public void evictExpired() {
+        entries.cleanUp();
+    }
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordStaleHit() {
+        staleHits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public long size() {
+        return entries.estimatedSize();
+    }
+
+    /**
+     * Byte stimati trattenuti dalle entry in cache
+     */
+    public long weightedSize() {
+        return entries.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long staleHitCount() {
+        return staleHits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Peso dell'entry in byte: body, header e chiave (char a 2 byte) piu' un overhead fisso
+     */
+    static int weight(String key, Entry entry) {
+        long bytes = ENTRY_OVERHEAD_BYTES + 2L * key.length() + entry.getBody().length;
+        for (Map.Entry<String, List<String>> header : entry.getHeaders().entrySet()) {
+            bytes += 2L * header.getKey().length();
+            for (String value : header.getValue()) {
+                bytes += 2L * value.length();
+            }
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * ETag forte: digest SHA-256 dei byte del body
+     */
+    static String etag(byte[] body) {
+        MessageDigest md = SHA_256.get();
+        md.reset();
+        byte[] hash = md.digest(body);
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+    }
+
+    /**
+     * Durata di ogni entry: fino alla fine della finestra stale, letta al momento dell'inserimento
+     */
+    private static final class UntilStale implements Expiry<String, Entry> {
+
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            long remainingMillis = entry.staleUntil - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0L, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * Risposta memorizzata con il suo ETag e le scadenze
+     */
+    public static final class Entry {
+
+        private final UpstreamResponse response;
+        private final String etag;
+        private final long freshUntil;
+        private final long staleUntil;
+
+        /**
+         * Evita piu' ricariche in background concorrenti della stessa entry
+         */
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(UpstreamResponse response, String etag, long freshUntil, long staleUntil) {
+            this.response = response;
+            this.etag = etag;
+            this.freshUntil = freshUntil;
+            this.staleUntil = staleUntil;
+        }
+
+        public boolean isFresh(long nowMillis) {
+            return nowMillis < freshUntil;
+        }
+
+        public boolean tryStartRefresh() {
+            return refreshing.compareAndSet(false, true);
+        }
+
+        public void refreshFailed() {
+            refreshing.set(false);
+        }
+
+        public int getStatus() {
+            return response.getStatus();
+        }
+
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        public byte[] getBody() {
+            return response.getBody();
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
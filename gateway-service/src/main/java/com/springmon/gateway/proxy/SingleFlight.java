@@ -0,0 +1,66 @@
+package com.springmon.gateway.proxy;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalescing delle chiamate identiche concorrenti: per ogni chiave c'e' al piu' una chiamata
+ * in volo e tutte le richieste arrivate nel frattempo ne condividono il risultato, errori compresi.
+ * La chiave viene rimossa appena la chiamata termina: nessun risultato viene riusato dopo.
+ */
+public class SingleFlight<T> {
+
+    private final ConcurrentHashMap<String, Flight<T>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    /**
+     * Risultato della chiamata in volo per la chiave, oppure di una nuova chiamata creata da call
+     */
+    public Mono<T> execute(String key, Supplier<Mono<T>> call) {
+        Flight<T> existing = inFlight.get(key);
+        if (existing != null) {
+            collapsed.increment();
+            return existing.result;
+        }
+
+        Flight<T> flight = new Flight<>(key, call.get(), inFlight);
+        existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            collapsed.increment();
+            return existing.result;
+        }
+        leaders.increment();
+        return flight.result;
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    public long leaderCount() {
+        return leaders.sum();
+    }
+
+    public long collapsedCount() {
+        return collapsed.sum();
+    }
+
+    private static final class Flight<T> {
+
+        private final Mono<T> result;
+
+        Flight(String key, Mono<T> call, ConcurrentHashMap<String, Flight<T>> inFlight) {
+            // La chiave esce dalla mappa prima che il risultato venga propagato;
+            // cache() condivide poi il segnale (valore o errore) con tutti i sottoscrittori
+            this.result = call
+                    .doOnTerminate(() -> inFlight.remove(key, this))
+                    .doOnCancel(() -> inFlight.remove(key, this))
+                    .cache();
+        }
+    }
+}
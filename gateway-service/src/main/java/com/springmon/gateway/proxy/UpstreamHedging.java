@@ -0,0 +1,229 @@
+package com.springmon.gateway.proxy;
+
+import com.springmon.gateway.routing.HedgePolicy;
+import com.springmon.gateway.routing.Route;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Hedging delle GET idempotenti: se la prima chiamata non risponde entro il percentile della latenza
+ * recente della rotta ne parte una seconda verso un'altra istanza; vince la prima risposta e l'altra
+ * chiamata viene cancellata. Le seconde chiamate sono limitate da un budget in percentuale del traffico.
+ * Richiede un motore che interrompa la chiamata HTTP alla cancellazione (ProxyEngine.abortsOnCancel,
+ * solo il reattivo): con il bloccante la perdente resterebbe in corso e l'hedging raddoppierebbe
+ * il carico invece di tagliare la coda. Le chiamate non bloccano, quindi nessuna cambia thread.
+ */
+@Component
+public class UpstreamHedging {
+
+    /**
+     * Latenze recenti usate per il percentile (per rotta)
+     */
+    private static final int WINDOW_SIZE = 1024;
+
+    /**
+     * Sotto questo numero di campioni il percentile non e' affidabile e non si fa hedging
+     */
+    private static final int MIN_SAMPLES = 50;
+
+    private static final long REFRESH_INTERVAL_NANOS = Duration.ofSeconds(1).toNanos();
+
+    /**
+     * Un token del budget in millesimi: ogni chiamata ne accredita budget-percent * 10
+     */
+    private static final long TOKEN = 1000;
+
+    @Value("${gateway.hedging.budget-percent:10}")
+    private double budgetPercent;
+
+    @Value("${gateway.hedging.max-burst:10}")
+    private int maxBurst;
+
+    private final UpstreamLoadBalancer upstreamLoadBalancer;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<String, Tracker> trackers = new ConcurrentHashMap<>();
+
+    public UpstreamHedging(UpstreamLoadBalancer upstreamLoadBalancer, MeterRegistry meterRegistry) {
+        this.upstreamLoadBalancer = upstreamLoadBalancer;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Una chiamata verso l'upstream della rotta
+     */
+    @FunctionalInterface
+    public interface Attempt<T> {
+
+        /**
+         * @param exclude istanza da evitare, null per la prima chiamata
+         * @param chosen  riceve l'istanza scelta dal bilanciamento
+         */
+        Mono<T> run(UpstreamInstance exclude, Consumer<UpstreamInstance> chosen);
+    }
+
+    /**
+     * Esegue la chiamata con hedging secondo la politica della rotta (che deve averne una)
+     */
+    public <T> Mono<T> execute(Route route, Attempt<T> attempt) {
+        return Mono.defer(() -> {
+            Tracker tracker = tracker(route);
+            tracker.deposit();
+
+            AtomicReference<UpstreamInstance> primaryInstance = new AtomicReference<>();
+            AtomicReference<T> hedgeResult = new AtomicReference<>();
+            long start = System.nanoTime();
+
+            Mono<T> primary = attempt.run(null, primaryInstance::set)
+                    .doOnNext(result -> tracker.record(System.nanoTime() - start));
+
+            // Senza percentile, budget o una seconda istanza sana la chiamata parte da sola, senza timer
+            long delay = tracker.delayNanos();
+            if (delay == Long.MAX_VALUE || !tracker.hasBudget() || !upstreamLoadBalancer.hasAlternative(route, null)) {
+                return primary;
+            }
+
+            Mono<T> hedge = Mono.delay(Duration.ofNanos(delay))
+                    .flatMap(ignored -> {
+                        UpstreamInstance first = primaryInstance.get();
+                        if (first == null || !upstreamLoadBalancer.hasAlternative(route, first)) {
+                            return Mono.<T>never();
+                        }
+                        if (!tracker.withdraw()) {
+                            tracker.throttled.increment();
+                            return Mono.<T>never();
+                        }
+                        tracker.sent.increment();
+                        return attempt.run(first, instance -> { })
+                                .doOnNext(hedgeResult::set);
+                    });
+
+            // Il primo segnale vince (valore o errore), l'altra chiamata viene cancellata
+            return Mono.firstWithSignal(primary, hedge)
+                    .doOnNext(result -> {
+                        if (result == hedgeResult.get()) {
+                            tracker.won.increment();
+                        }
+                    });
+        });
+    }
+
+    private Tracker tracker(Route route) {
+        Tracker tracker = trackers.get(route.getId());
+        if (tracker != null && tracker.policy == route.getHedge()) {
+            return tracker;
+        }
+        return trackers.compute(route.getId(), (id, existing) ->
+                existing != null && existing.policy == route.getHedge()
+                        ? existing
+                        : new Tracker(id, route.getHedge(), existing));
+    }
+
+    /**
+     * Latenze recenti, delay corrente e budget di una rotta
+     */
+    private final class Tracker {
+
+        private final HedgePolicy policy;
+
+        private final long[] samples = new long[WINDOW_SIZE];
+        private final AtomicLong sampleCount = new AtomicLong();
+
+        private volatile long delayNanos = Long.MAX_VALUE;
+        private final AtomicLong refreshedAt = new AtomicLong(System.nanoTime());
+
+        private final AtomicLong budget = new AtomicLong();
+
+        private final Counter sent;
+        private final Counter won;
+        private final Counter throttled;
+
+        Tracker(String routeId, HedgePolicy policy, Tracker previous) {
+            this.policy = policy;
+            if (previous != null) {
+                // Reload delle rotte: i contatori sono gli stessi meter
+                this.sent = previous.sent;
+                this.won = previous.won;
+                this.throttled = previous.throttled;
+            } else {
+                this.sent = Counter.builder("gateway.hedging.sent")
+                        .description("Seconde chiamate inviate a un'altra istanza")
+                        .tags("route", routeId)
+                        .register(meterRegistry);
+                this.won = Counter.builder("gateway.hedging.won")
+                        .description("Seconde chiamate che hanno risposto per prime")
+                        .tags("route", routeId)
+                        .register(meterRegistry);
+                this.throttled = Counter.builder("gateway.hedging.throttled")
+                        .description("Seconde chiamate non inviate per budget esaurito")
+                        .tags("route", routeId)
+                        .register(meterRegistry);
+                Gauge.builder("gateway.hedging.delay", trackers, map -> {
+                            Tracker current = map.get(routeId);
+                            return current == null || current.delayNanos == Long.MAX_VALUE
+                                    ? Double.NaN : current.delayNanos / 1e9;
+                        })
+                        .description("Attesa corrente prima della seconda chiamata")
+                        .baseUnit("seconds")
+                        .tags("route", routeId)
+                        .register(meterRegistry);
+            }
+        }
+
+        void record(long nanos) {
+            samples[(int) (sampleCount.getAndIncrement() & (WINDOW_SIZE - 1))] = nanos;
+        }
+
+        /**
+         * Percentile delle latenze recenti (ricalcolato al piu' una volta al secondo),
+         * Long.MAX_VALUE finche' i campioni sono troppo pochi
+         */
+        long delayNanos() {
+            long now = System.nanoTime();
+            long last = refreshedAt.get();
+            if (now - last >= REFRESH_INTERVAL_NANOS && refreshedAt.compareAndSet(last, now)) {
+                int count = (int) Math.min(sampleCount.get(), WINDOW_SIZE);
+                if (count >= MIN_SAMPLES) {
+                    long[] sorted = Arrays.copyOf(samples, count);
+                    Arrays.sort(sorted);
+                    long percentile = sorted[Math.min(count - 1, (int) Math.ceil(policy.getPercentile() * count) - 1)];
+                    delayNanos = Math.max(percentile, policy.getMinDelay().toNanos());
+                }
+            }
+            return delayNanos;
+        }
+
+        void deposit() {
+            long credit = (long) (budgetPercent * TOKEN / 100);
+            long max = maxBurst * TOKEN;
+            budget.accumulateAndGet(credit, (current, added) -> Math.min(max, current + added));
+        }
+
+        boolean hasBudget() {
+            return budget.get() >= TOKEN;
+        }
+
+        boolean withdraw() {
+            long current;
+            do {
+                current = budget.get();
+                if (current < TOKEN) {
+                    return false;
+                }
+            } while (!budget.compareAndSet(current, current - TOKEN));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.springmon.gateway.proxy;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Istanza di un upstream bilanciato: richieste in volo, errori consecutivi e stato di salute
+ */
+public final class UpstreamInstance {
+
+    /**
+     * Attributo di request con l'ultima istanza contattata per la richiesta (access log)
+     */
+    public static final String ATTRIBUTE = UpstreamInstance.class.getName() + ".INSTANCE";
+
+    private final String upstream;
+    private final String baseUrl;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private final AtomicBoolean healthy = new AtomicBoolean(true);
+
+    UpstreamInstance(String upstream, String baseUrl) {
+        this.upstream = upstream;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * URI della richiesta su questa istanza (target = path e query string)
+     */
+    public URI resolve(String target) {
+        return URI.create(baseUrl + target);
+    }
+
+    public String getUpstream() {
+        return upstream;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public boolean isHealthy() {
+        return healthy.get();
+    }
+
+    void acquire() {
+        inFlight.incrementAndGet();
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    void recordSuccess() {
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    /**
+     * Registra un errore; true se l'istanza va espulsa adesso (soglia raggiunta mentre era sana)
+     */
+    boolean recordFailure(int ejectAfter) {
+        return consecutiveFailures.incrementAndGet() >= ejectAfter && markUnhealthy();
+    }
+
+    /**
+     * true se l'istanza era sana
+     */
+    boolean markUnhealthy() {
+        return healthy.compareAndSet(true, false);
+    }
+
+    /**
+     * true se l'istanza era espulsa
+     */
+    boolean markHealthy() {
+        consecutiveFailures.set(0);
+        return healthy.compareAndSet(false, true);
+    }
+
+    @Override
+    public String toString() {
+        return upstream + "@" + baseUrl;
+    }
+}
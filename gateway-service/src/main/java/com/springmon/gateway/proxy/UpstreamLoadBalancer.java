@@ -0,0 +1,290 @@
+package com.springmon.gateway.proxy;
+
+import com.springmon.gateway.routing.Route;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bilanciamento lato client tra le istanze di ogni upstream (gateway.upstreams.x=url1,url2,...):
+ * power of two choices sulle richieste in volo. Un'istanza viene espulsa dopo eject-after-failures
+ * errori di connessione o risposte 5xx consecutive e rientra quando risponde al probe di health-check.
+ * Se nessuna istanza e' sana si sceglie comunque tra tutte (meglio un tentativo che un 503 certo).
+ */
+@Component
+public class UpstreamLoadBalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamLoadBalancer.class);
+
+    @Value("${gateway.load-balancer.eject-after-failures:3}")
+    private int ejectAfterFailures;
+
+    @Value("${gateway.load-balancer.health-check.enabled:true}")
+    private boolean healthCheckEnabled;
+
+    @Value("${gateway.load-balancer.health-check.path:/api/health}")
+    private String healthCheckPath;
+
+    @Value("${gateway.load-balancer.health-check.timeout-ms:1000}")
+    private long healthCheckTimeoutMs;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Istanze per upstream, ricostruite quando il reload delle rotte cambia la lista degli URL
+     */
+    private final ConcurrentHashMap<String, Pool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Istanze per upstream e URL: stato e metriche sopravvivono al reload delle rotte
+     */
+    private final ConcurrentHashMap<String, UpstreamInstance> instances = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<UpstreamInstance, Timer> durations = new ConcurrentHashMap<>();
+
+    /**
+     * Giro di health-check in corso
+     */
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    private final HttpClient probeClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    public UpstreamLoadBalancer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Inoltro in streaming: lo status dell'upstream e' quello scritto sulla risposta
+     */
+    public Mono<Void> execute(Route route, HttpServletResponse response, Function<UpstreamInstance, Mono<Void>> call) {
+        return execute(route, call, ignored -> response.getStatus());
+    }
+
+    /**
+     * Esegue la chiamata sull'istanza scelta per la rotta; statusOf ricava lo status HTTP dal risultato
+     */
+    public <T> Mono<T> execute(Route route, Function<UpstreamInstance, Mono<T>> call, ToIntFunction<T> statusOf) {
+        return execute(route, null, call, statusOf);
+    }
+
+    /**
+     * Come execute, evitando l'istanza exclude finche' ne esiste un'altra sana
+     */
+    public <T> Mono<T> execute(Route route, UpstreamInstance exclude,
+                               Function<UpstreamInstance, Mono<T>> call, ToIntFunction<T> statusOf) {
+        return Mono.defer(() -> {
+            UpstreamInstance instance = choose(route, exclude);
+            Timer duration = durations.get(instance);
+            long start = System.nanoTime();
+            // acquire alla sottoscrizione della catena che rilascia: anche un'eccezione sincrona di call passa da doFinally
+            return Mono.defer(() -> {
+                        instance.acquire();
+                        return call.apply(instance);
+                    })
+                    .doOnSuccess(result -> {
+                        if (statusOf.applyAsInt(result) >= 500) {
+                            failed(instance, "5xx response");
+                        } else {
+                            instance.recordSuccess();
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (isConnectFailure(e)) {
+                            failed(instance, e.toString());
+                        }
+                    })
+                    .doFinally(signal -> {
+                        instance.release();
+                        if (signal != SignalType.CANCEL) {
+                            duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Power of two choices tra le istanze sane: vince quella con meno richieste in volo
+     */
+    UpstreamInstance choose(Route route, UpstreamInstance exclude) {
+        UpstreamInstance[] candidates = pool(route).instances;
+        int n = candidates.length;
+        if (n == 1) {
+            return candidates[0];
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UpstreamInstance first = healthyFrom(candidates, random.nextInt(n), exclude);
+        if (first == null) {
+            return leastLoaded(candidates[random.nextInt(n)], candidates[random.nextInt(n)]);
+        }
+        UpstreamInstance second = healthyFrom(candidates, random.nextInt(n), exclude);
+        return leastLoaded(first, second);
+    }
+
+    /**
+     * Indica se la rotta ha un'istanza sana diversa da instance (con null: almeno due istanze, una sana)
+     */
+    public boolean hasAlternative(Route route, UpstreamInstance instance) {
+        UpstreamInstance[] candidates = pool(route).instances;
+        return candidates.length > 1 && healthyFrom(candidates, 0, instance) != null;
+    }
+
+    /**
+     * Probe attivo di tutte le istanze: le espulse rientrano al primo 2xx, le sane che non rispondono escono.
+     * I probe sono asincroni e il thread condiviso dello scheduler non li attende; un giro parte solo
+     * quando il precedente e' concluso (ogni probe termina entro health-check.timeout-ms).
+     */
+    @Scheduled(fixedDelayString = "${gateway.load-balancer.health-check.interval-ms:5000}")
+    public void checkHealth() {
+        if (!healthCheckEnabled || instances.isEmpty() || !probing.compareAndSet(false, true)) {
+            return;
+        }
+        List<CompletableFuture<Void>> probes = new ArrayList<>();
+        try {
+            for (Pool pool : pools.values()) {
+                for (UpstreamInstance instance : pool.instances) {
+                    probes.add(probe(instance));
+                }
+            }
+        } finally {
+            CompletableFuture.allOf(probes.toArray(new CompletableFuture[0]))
+                    .whenComplete((ignored, e) -> probing.set(false));
+        }
+    }
+
+    private CompletableFuture<Void> probe(UpstreamInstance instance) {
+        HttpRequest request = HttpRequest.newBuilder(instance.resolve(healthCheckPath))
+                .timeout(Duration.ofMillis(healthCheckTimeoutMs))
+                .GET()
+                .build();
+        return probeClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, e) -> {
+                    if (e == null && response.statusCode() >= 200 && response.statusCode() < 300) {
+                        if (instance.markHealthy()) {
+                            logger.info("Upstream instance {} is healthy again", instance);
+                        }
+                    } else if (instance.markUnhealthy()) {
+                        ejected(instance, e != null ? e.toString() : "health check returned " + response.statusCode());
+                    }
+                    return null;
+                });
+    }
+
+    private void failed(UpstreamInstance instance, String reason) {
+        if (instance.recordFailure(ejectAfterFailures)) {
+            ejected(instance, reason);
+        }
+    }
+
+    private void ejected(UpstreamInstance instance, String reason) {
+        logger.warn("Upstream instance {} ejected: {}", instance, reason);
+        Counter.builder("gateway.upstream.instance.ejections")
+                .description("Istanze espulse dal bilanciamento (errori consecutivi o health-check fallito)")
+                .tags("upstream", instance.getUpstream(), "instance", instance.getBaseUrl())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Pool pool(Route route) {
+        Pool pool = pools.get(route.getUpstream());
+        if (pool != null && pool.urls.equals(route.getUpstreamUrls())) {
+            return pool;
+        }
+        return pools.compute(route.getUpstream(), (upstream, existing) ->
+                existing != null && existing.urls.equals(route.getUpstreamUrls())
+                        ? existing
+                        : new Pool(route.getUpstreamUrls(), route.getUpstreamUrls().stream()
+                                .map(url -> instance(upstream, url))
+                                .toArray(UpstreamInstance[]::new)));
+    }
+
+    private UpstreamInstance instance(String upstream, String url) {
+        return instances.computeIfAbsent(upstream + ' ' + url, key -> {
+            UpstreamInstance instance = new UpstreamInstance(upstream, url);
+            Gauge.builder("gateway.upstream.instance.in.flight", instance, UpstreamInstance::getInFlight)
+                    .description("Richieste in volo verso l'istanza")
+                    .tags("upstream", upstream, "instance", url)
+                    .register(meterRegistry);
+            Gauge.builder("gateway.upstream.instance.healthy", instance, i -> i.isHealthy() ? 1 : 0)
+                    .description("1 se l'istanza riceve traffico, 0 se espulsa")
+                    .tags("upstream", upstream, "instance", url)
+                    .register(meterRegistry);
+            durations.put(instance, Timer.builder("gateway.upstream.instance.duration")
+                    .description("Chiamate verso la singola istanza dell'upstream")
+                    .tags("upstream", upstream, "instance", url)
+                    .register(meterRegistry));
+            return instance;
+        });
+    }
+
+    private static UpstreamInstance healthyFrom(UpstreamInstance[] candidates, int start, UpstreamInstance exclude) {
+        for (int i = 0; i < candidates.length; i++) {
+            UpstreamInstance candidate = candidates[(start + i) % candidates.length];
+            if (candidate != exclude && candidate.isHealthy()) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static UpstreamInstance leastLoaded(UpstreamInstance a, UpstreamInstance b) {
+        return b.getInFlight() < a.getInFlight() ? b : a;
+    }
+
+    /**
+     * Errori in cui l'istanza non e' stata raggiunta (connessione rifiutata, host sconosciuto, timeout di connect)
+     */
+    static boolean isConnectFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException
+                    || cause instanceof NoRouteToHostException
+                    || cause instanceof UnknownHostException
+                    || cause instanceof org.apache.hc.client5.http.ConnectTimeoutException
+                    || cause instanceof io.netty.channel.ConnectTimeoutException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static final class Pool {
+
+        private final List<String> urls;
+        private final UpstreamInstance[] instances;
+
+        Pool(List<String> urls, UpstreamInstance[] instances) {
+            this.urls = urls;
+            this.instances = instances;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.springmon.gateway.proxy;
+
+/**
+ * Chiamata rifiutata dal gateway senza contattare l'upstream
+ * (circuit breaker aperto o bulkhead della rotta pieno)
+ */
+public class UpstreamRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public UpstreamRejectedException(String message, long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,15 @@
+package com.springmon.gateway.proxy;
+
+import org.springframework.http.client.ClientHttpRequestFactory;
+
+import java.time.Duration;
+
+/**
+ * Fabbrica delle richieste verso i servizi interni con il timeout di risposta della rotta.
+ * Tutte le fabbriche restituite condividono lo stesso client (e lo stesso pool di connessioni).
+ */
+@FunctionalInterface
+public interface UpstreamRequestFactory {
+
+    ClientHttpRequestFactory withResponseTimeout(Duration responseTimeout);
+}
@@ -0,0 +1,136 @@
+package com.springmon.gateway.proxy;
+
+import com.springmon.gateway.routing.Route;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Circuit breaker per upstream e bulkhead a semaforo per rotta attorno alle chiamate del proxy.
+ * Con il circuito aperto o il bulkhead pieno la chiamata fallisce subito con UpstreamRejectedException.
+ * Le risposte 5xx dell'upstream contano come errori, quelle oltre slow-call-duration-threshold come lente.
+ */
+@Component
+public class UpstreamResilience {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamResilience.class);
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private final BulkheadRegistry bulkheadRegistry;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Istante di apertura di ogni circuito, per calcolare il Retry-After
+     */
+    private final Map<String, Long> openedAt = new ConcurrentHashMap<>();
+
+    public UpstreamResilience(CircuitBreakerRegistry circuitBreakerRegistry,
+                              BulkheadRegistry bulkheadRegistry,
+                              MeterRegistry meterRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.meterRegistry = meterRegistry;
+
+        circuitBreakerRegistry.getEventPublisher().onEntryAdded(event ->
+                event.getAddedEntry().getEventPublisher().onStateTransition(transition -> {
+                    CircuitBreaker.StateTransition stateTransition = transition.getStateTransition();
+                    if (stateTransition.getToState() == CircuitBreaker.State.OPEN) {
+                        openedAt.put(transition.getCircuitBreakerName(), System.currentTimeMillis());
+                    }
+                    logger.warn("Circuit breaker '{}': {} -> {}", transition.getCircuitBreakerName(),
+                            stateTransition.getFromState(), stateTransition.getToState());
+                }));
+    }
+
+    /**
+     * Inoltra la richiesta in streaming verso l'upstream della rotta se circuit breaker e bulkhead lo permettono
+     */
+    public Mono<Void> execute(Route route, HttpServletResponse response, Mono<Void> call) {
+        return execute(route, call, ignored -> response.getStatus());
+    }
+
+    /**
+     * Esegue la chiamata verso l'upstream della rotta se circuit breaker e bulkhead lo permettono;
+     * statusOf ricava lo status HTTP dell'upstream dal risultato
+     */
+    public <T> Mono<T> execute(Route route, Mono<T> call, ToIntFunction<T> statusOf) {
+        return Mono.defer(() -> {
+            CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(route.getUpstream());
+            if (!circuitBreaker.tryAcquirePermission()) {
+                rejected(route, "circuit_open");
+                return Mono.error(new UpstreamRejectedException(
+                        route.getUpstream() + " service unavailable", retryAfterSeconds(circuitBreaker)));
+            }
+
+            Bulkhead bulkhead = bulkheadRegistry.bulkhead(route.getId());
+            if (!bulkhead.tryAcquirePermission()) {
+                circuitBreaker.releasePermission();
+                rejected(route, "bulkhead_full");
+                return Mono.error(new UpstreamRejectedException(
+                        "Too many concurrent requests for " + route.getId(), 1));
+            }
+
+            long start = circuitBreaker.getCurrentTimestamp();
+            return call
+                    .doOnSuccess(result -> {
+                        long duration = circuitBreaker.getCurrentTimestamp() - start;
+                        int status = statusOf.applyAsInt(result);
+                        if (status >= 500) {
+                            circuitBreaker.onError(duration, circuitBreaker.getTimestampUnit(),
+                                    new UpstreamStatusException(status));
+                        } else {
+                            circuitBreaker.onSuccess(duration, circuitBreaker.getTimestampUnit());
+                        }
+                    })
+                    .doOnError(e -> circuitBreaker.onError(circuitBreaker.getCurrentTimestamp() - start,
+                            circuitBreaker.getTimestampUnit(), e))
+                    .doOnCancel(circuitBreaker::releasePermission)
+                    .doFinally(signal -> bulkhead.onComplete());
+        });
+    }
+
+    private void rejected(Route route, String reason) {
+        Counter.builder("gateway.proxy.rejected")
+                .description("Chiamate rifiutate dal gateway senza contattare l'upstream")
+                .tags("route", route.getId(), "upstream", route.getUpstream(), "reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Secondi mancanti al passaggio in half-open (almeno 1)
+     */
+    private long retryAfterSeconds(CircuitBreaker circuitBreaker) {
+        Long opened = openedAt.get(circuitBreaker.getName());
+        if (opened == null || circuitBreaker.getState() != CircuitBreaker.State.OPEN) {
+            return 1;
+        }
+        long waitMs = circuitBreaker.getCircuitBreakerConfig().getWaitIntervalFunctionInOpenState().apply(1);
+        long remainingMs = opened + waitMs - System.currentTimeMillis();
+        return Math.max(1, (remainingMs + 999) / 1000);
+    }
+
+    /**
+     * Risposta 5xx dell'upstream registrata come errore dal circuit breaker
+     */
+    static class UpstreamStatusException extends RuntimeException {
+
+        UpstreamStatusException(int status) {
+            super("Upstream responded " + status, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.springmon.gateway.proxy;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Risposta di un servizio interno letta interamente in memoria, con l'istanza che l'ha servita.
+ * Se il body supera il limite di lettura la risposta e' "oversized": status e header senza body,
+ * da ripetere in streaming.
+ */
+public final class UpstreamResponse {
+
+    private final int status;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final boolean oversized;
+    private final UpstreamInstance instance;
+
+    public UpstreamResponse(int status, HttpHeaders headers, byte[] body) {
+        this(status, headers, body, false, null);
+    }
+
+    private UpstreamResponse(int status, HttpHeaders headers, byte[] body, boolean oversized,
+                             UpstreamInstance instance) {
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+        this.oversized = oversized;
+        this.instance = instance;
+    }
+
+    /**
+     * Risposta il cui body supera il limite: la lettura e' stata interrotta e il body scartato
+     */
+    public static UpstreamResponse oversized(int status, HttpHeaders headers) {
+        return new UpstreamResponse(status, headers, new byte[0], true, null);
+    }
+
+    /**
+     * Stessa risposta associata all'istanza scelta dal load balancer
+     */
+    public UpstreamResponse withInstance(UpstreamInstance instance) {
+        return new UpstreamResponse(status, headers, body, oversized, instance);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public boolean isOversized() {
+        return oversized;
+    }
+
+    /**
+     * Istanza che ha servito la risposta, null se non passata dal load balancer
+     */
+    public UpstreamInstance getInstance() {
+        return instance;
+    }
+}
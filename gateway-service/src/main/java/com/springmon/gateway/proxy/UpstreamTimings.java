@@ -0,0 +1,61 @@
+package com.springmon.gateway.proxy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tempi delle chiamate verso i servizi interni, per upstream:
+ * connect (apertura di una nuova connessione TCP), TTFB (fino agli header della risposta)
+ * e totale (fino all'ultimo byte del body inoltrato).
+ * I Timer sono creati una volta per upstream: la registrazione non alloca.
+ */
+@Component
+public class UpstreamTimings {
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<String, Timer> connectTimers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> ttfbTimers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> totalTimers = new ConcurrentHashMap<>();
+
+    public UpstreamTimings(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Tempo di connessione verso l'indirizzo remoto (host:porta)
+     */
+    public void recordConnect(String remote, long nanos) {
+        timer(connectTimers, "gateway.upstream.connect",
+                "Apertura di una nuova connessione verso un servizio interno", "remote", remote)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTimeToFirstByte(String upstream, long nanos) {
+        timer(ttfbTimers, "gateway.upstream.ttfb",
+                "Dall'invio della richiesta alla ricezione degli header della risposta", "upstream", upstream)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTotal(String upstream, long nanos) {
+        timer(totalTimers, "gateway.upstream.duration",
+                "Chiamata completa verso il servizio interno, body compreso", "upstream", upstream)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(ConcurrentHashMap<String, Timer> timers, String name, String description,
+                        String tagKey, String tagValue) {
+        Timer timer = timers.get(tagValue);
+        if (timer != null) {
+            return timer;
+        }
+        return timers.computeIfAbsent(tagValue, value -> Timer.builder(name)
+                .description(description)
+                .tags(tagKey, value)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,40 @@
+package com.springmon.gateway.routing;
+
+import java.time.Duration;
+
+/**
+ * Cache delle risposte GET di una rotta: fresche per ttl, poi servite stale
+ * per staleGrace mentre vengono ricaricate in background
+ */
+public final class CachePolicy {
+
+    private final Duration ttl;
+    private final Duration staleGrace;
+
+    public CachePolicy(Duration ttl, Duration staleGrace) {
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be > 0");
+        }
+        if (staleGrace != null && staleGrace.isNegative()) {
+            throw new IllegalArgumentException("stale-grace must be >= 0");
+        }
+        this.ttl = ttl;
+        this.staleGrace = staleGrace != null ? staleGrace : Duration.ZERO;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public Duration getStaleGrace() {
+        return staleGrace;
+    }
+
+    @Override
+    public String toString() {
+        return "CachePolicy{" +
+                "ttl=" + ttl +
+                ", staleGrace=" + staleGrace +
+                '}';
+    }
+}
@@ -0,0 +1,36 @@
+package com.springmon.gateway.routing;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Upstream e rotte del gateway (prefisso gateway.*)
+ */
+public class GatewayRoutesProperties {
+
+    /**
+     * URL base degli upstream per nome, ad esempio gateway.upstreams.user=http://user-service:8083;
+     * piu' istanze separate da virgola vengono bilanciate dal gateway
+     */
+    private Map<String, String> upstreams = new LinkedHashMap<>();
+
+    private List<RouteDefinition> routes = new ArrayList<>();
+
+    public Map<String, String> getUpstreams() {
+        return upstreams;
+    }
+
+    public void setUpstreams(Map<String, String> upstreams) {
+        this.upstreams = upstreams;
+    }
+
+    public List<RouteDefinition> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(List<RouteDefinition> routes) {
+        this.routes = routes;
+    }
+}
@@ -0,0 +1,40 @@
+package com.springmon.gateway.routing;
+
+import java.time.Duration;
+
+/**
+ * Hedging delle GET di una rotta: se la prima chiamata non ha risposto entro il percentile
+ * della latenza osservata (mai meno di minDelay) ne parte una seconda verso un'altra istanza
+ */
+public final class HedgePolicy {
+
+    private final double percentile;
+    private final Duration minDelay;
+
+    public HedgePolicy(double percentile, Duration minDelay) {
+        if (!(percentile > 0 && percentile < 1)) {
+            throw new IllegalArgumentException("percentile must be between 0 and 1 (exclusive)");
+        }
+        if (minDelay != null && minDelay.isNegative()) {
+            throw new IllegalArgumentException("min-delay must be >= 0");
+        }
+        this.percentile = percentile;
+        this.minDelay = minDelay != null ? minDelay : Duration.ZERO;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public Duration getMinDelay() {
+        return minDelay;
+    }
+
+    @Override
+    public String toString() {
+        return "HedgePolicy{" +
+                "percentile=" + percentile +
+                ", minDelay=" + minDelay +
+                '}';
+    }
+}
@@ -0,0 +1,47 @@
+package com.springmon.gateway.routing;
+
+/**
+ * Limite di richieste compilato per una rotta: replenishRate richieste al secondo
+ * con raffiche fino a burstCapacity richieste
+ */
+public final class RateLimit {
+
+    private final double replenishRate;
+    private final int burstCapacity;
+    private final long emissionIntervalNanos;
+
+    public RateLimit(double replenishRate, int burstCapacity) {
+        if (!(replenishRate > 0)) {
+            throw new IllegalArgumentException("replenish-rate must be > 0");
+        }
+        if (burstCapacity < 1) {
+            throw new IllegalArgumentException("burst-capacity must be >= 1");
+        }
+        this.replenishRate = replenishRate;
+        this.burstCapacity = burstCapacity;
+        this.emissionIntervalNanos = Math.max(1L, Math.round(1_000_000_000d / replenishRate));
+    }
+
+    public double getReplenishRate() {
+        return replenishRate;
+    }
+
+    public int getBurstCapacity() {
+        return burstCapacity;
+    }
+
+    /**
+     * Intervallo tra due token in nanosecondi
+     */
+    public long emissionIntervalNanos() {
+        return emissionIntervalNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimit{" +
+                "replenishRate=" + replenishRate +
+                ", burstCapacity=" + burstCapacity +
+                '}';
+    }
+}
@@ -0,0 +1,129 @@
+package com.springmon.gateway.routing;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Rotta compilata e immutabile: upstream gia' risolto e metodi come bitmask
+ */
+public final class Route {
+
+    static final int ALL_METHODS = -1;
+
+    private final String id;
+    private final String path;
+    private final List<String> methods;
+    private final int methodMask;
+    private final String upstream;
+    private final List<String> upstreamUrls;
+    private final Duration timeout;
+    private final boolean authRequired;
+    private final RateLimit rateLimit;
+    private final CachePolicy cache;
+    private final boolean coalesce;
+    private final HedgePolicy hedge;
+
+    Route(String id, String path, List<String> methods, int methodMask, String upstream,
+          List<String> upstreamUrls, Duration timeout, boolean authRequired, RateLimit rateLimit,
+          CachePolicy cache, boolean coalesce, HedgePolicy hedge) {
+        this.id = id;
+        this.path = path;
+        this.methods = methods;
+        this.methodMask = methodMask;
+        this.upstream = upstream;
+        this.upstreamUrls = upstreamUrls;
+        this.timeout = timeout;
+        this.authRequired = authRequired;
+        this.rateLimit = rateLimit;
+        this.cache = cache;
+        this.coalesce = coalesce;
+        this.hedge = hedge;
+    }
+
+    /**
+     * Bit del metodo HTTP, 0 se il metodo non e' supportato
+     */
+    static int methodBit(String method) {
+        switch (method) {
+            case "GET": return 1;
+            case "HEAD": return 1 << 1;
+            case "POST": return 1 << 2;
+            case "PUT": return 1 << 3;
+            case "PATCH": return 1 << 4;
+            case "DELETE": return 1 << 5;
+            case "OPTIONS": return 1 << 6;
+            case "TRACE": return 1 << 7;
+            default: return 0;
+        }
+    }
+
+    boolean allows(int methodBit) {
+        return (methodMask & methodBit) != 0;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public List<String> getMethods() {
+        return methods;
+    }
+
+    public String getUpstream() {
+        return upstream;
+    }
+
+    /**
+     * URL base delle istanze dell'upstream, senza slash finale
+     */
+    public List<String> getUpstreamUrls() {
+        return upstreamUrls;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public boolean isAuthRequired() {
+        return authRequired;
+    }
+
+    /**
+     * Limite specifico della rotta, oppure null (vale il default del gateway)
+     */
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * Politica di cache delle risposte GET, oppure null
+     */
+    public CachePolicy getCache() {
+        return cache;
+    }
+
+    public boolean isCoalesce() {
+        return coalesce;
+    }
+
+    /**
+     * Politica di hedging delle GET, oppure null
+     */
+    public HedgePolicy getHedge() {
+        return hedge;
+    }
+
+    @Override
+    public String toString() {
+        return "Route{" +
+                "id='" + id + '\'' +
+                ", path='" + path + '\'' +
+                ", methods=" + methods +
+                ", upstream='" + upstream + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,233 @@
+package com.springmon.gateway.routing;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Definizione di una rotta come scritta nella configurazione (gateway.routes[n].*)
+ */
+public class RouteDefinition {
+
+    private String id;
+
+    /**
+     * Path esatto (/api/auth/login) oppure prefisso terminato da /** (/api/users/**)
+     */
+    private String path;
+
+    /**
+     * Metodi HTTP ammessi; lista vuota = tutti
+     */
+    private List<String> methods = new ArrayList<>();
+
+    /**
+     * Nome dell'upstream definito in gateway.upstreams
+     */
+    private String upstream;
+
+    /**
+     * Timeout di risposta dell'upstream; se assente vale gateway.http.client.response-timeout
+     */
+    private Duration timeout;
+
+    private boolean authRequired = true;
+
+    /**
+     * Limite per client (IP sulle rotte pubbliche, subject JWT sulle protette);
+     * se assente vale gateway.rate-limit.default-*
+     */
+    private RateLimitDefinition rateLimit;
+
+    /**
+     * Cache per subject delle risposte GET 200; se assente la rotta non e' in cache
+     */
+    private CacheDefinition cache;
+
+    /**
+     * GET identiche concorrenti (stesso subject) condividono una sola chiamata all'upstream.
+     * Sempre attivo per i miss delle rotte con cache.
+     */
+    private boolean coalesce;
+
+    /**
+     * Hedging delle GET verso una seconda istanza; se assente la rotta non usa hedging
+     */
+    private HedgeDefinition hedge;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public List<String> getMethods() {
+        return methods;
+    }
+
+    public void setMethods(List<String> methods) {
+        this.methods = methods;
+    }
+
+    public String getUpstream() {
+        return upstream;
+    }
+
+    public void setUpstream(String upstream) {
+        this.upstream = upstream;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public boolean isAuthRequired() {
+        return authRequired;
+    }
+
+    public void setAuthRequired(boolean authRequired) {
+        this.authRequired = authRequired;
+    }
+
+    public RateLimitDefinition getRateLimit() {
+        return rateLimit;
+    }
+
+    public void setRateLimit(RateLimitDefinition rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    public CacheDefinition getCache() {
+        return cache;
+    }
+
+    public void setCache(CacheDefinition cache) {
+        this.cache = cache;
+    }
+
+    public boolean isCoalesce() {
+        return coalesce;
+    }
+
+    public void setCoalesce(boolean coalesce) {
+        this.coalesce = coalesce;
+    }
+
+    public HedgeDefinition getHedge() {
+        return hedge;
+    }
+
+    public void setHedge(HedgeDefinition hedge) {
+        this.hedge = hedge;
+    }
+
+    /**
+     * gateway.routes[n].rate-limit.*
+     */
+    public static class RateLimitDefinition {
+
+        /**
+         * Richieste al secondo restituite al bucket
+         */
+        private double replenishRate;
+
+        /**
+         * Richieste ammesse in una raffica a bucket pieno
+         */
+        private int burstCapacity;
+
+        public double getReplenishRate() {
+            return replenishRate;
+        }
+
+        public void setReplenishRate(double replenishRate) {
+            this.replenishRate = replenishRate;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public void setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+        }
+    }
+
+    /**
+     * gateway.routes[n].cache.*
+     */
+    public static class CacheDefinition {
+
+        /**
+         * Durata in cui la risposta e' fresca e non contatta l'upstream
+         */
+        private Duration ttl;
+
+        /**
+         * Finestra dopo il ttl in cui la risposta viene servita stale mentre si ricarica
+         */
+        private Duration staleGrace;
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public Duration getStaleGrace() {
+            return staleGrace;
+        }
+
+        public void setStaleGrace(Duration staleGrace) {
+            this.staleGrace = staleGrace;
+        }
+    }
+
+    /**
+     * gateway.routes[n].hedge.*
+     */
+    public static class HedgeDefinition {
+
+        /**
+         * Percentile della latenza osservata dopo cui parte la seconda chiamata
+         */
+        private double percentile = 0.95;
+
+        /**
+         * Attesa minima prima della seconda chiamata
+         */
+        private Duration minDelay;
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.springmon.gateway.routing;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.PropertySourcesPlaceholdersResolver;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySource;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.PropertiesPropertySourceLoader;
+import org.springframework.boot.env.PropertySourceLoader;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tabella delle rotte attiva. Le rotte arrivano da gateway.upstreams/gateway.routes
+ * e, se configurato, da un file esterno (properties o YAML) che ha la precedenza;
+ * reload() le rilegge e sostituisce la tabella senza riavvio.
+ */
+@Component
+public class RouteTable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteTable.class);
+
+    private static final String PREFIX = "gateway";
+
+    @Value("${gateway.routes-file:}")
+    private String routesFile;
+
+    @Value("${gateway.http.client.response-timeout:10000}")
+    private long defaultTimeoutMs;
+
+    private final ConfigurableEnvironment environment;
+
+    private volatile RouteTrie trie;
+
+    public RouteTable(ConfigurableEnvironment environment) {
+        this.environment = environment;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.trie = load();
+        logger.info("Loaded {} gateway routes", trie.getRoutes().size());
+    }
+
+    /**
+     * Rilegge e ricompila le rotte; se la nuova configurazione non e' valida
+     * l'eccezione viene propagata e resta attiva la tabella precedente
+     */
+    public synchronized List<Route> reload() {
+        RouteTrie reloaded = load();
+        this.trie = reloaded;
+        logger.info("Reloaded {} gateway routes", reloaded.getRoutes().size());
+        return reloaded.getRoutes();
+    }
+
+    /**
+     * Rotta della richiesta, oppure null
+     */
+    public Route match(HttpServletRequest request) {
+        return trie.match(request.getMethod(), request.getRequestURI());
+    }
+
+    /**
+     * Indica se la richiesta e' coperta da una rotta che non richiede autenticazione
+     */
+    public boolean isPublicRoute(HttpServletRequest request) {
+        Route route = match(request);
+        return route != null && !route.isAuthRequired();
+    }
+
+    public List<Route> getRoutes() {
+        return trie.getRoutes();
+    }
+
+    private RouteTrie load() {
+        List<ConfigurationPropertySource> sources = new ArrayList<>();
+        for (PropertySource<?> source : loadRoutesFile()) {
+            ConfigurationPropertySources.from(source).forEach(sources::add);
+        }
+        ConfigurationPropertySources.get(environment).forEach(sources::add);
+
+        Binder binder = new Binder(sources, new PropertySourcesPlaceholdersResolver(environment));
+        GatewayRoutesProperties properties = binder.bind(PREFIX, GatewayRoutesProperties.class)
+                .orElseGet(GatewayRoutesProperties::new);
+        return RouteTrie.compile(properties, Duration.ofMillis(defaultTimeoutMs));
+    }
+
+    private List<PropertySource<?>> loadRoutesFile() {
+        if (!StringUtils.hasText(routesFile)) {
+            return List.of();
+        }
+
+        Resource resource = new DefaultResourceLoader().getResource(routesFile);
+        if (!resource.exists()) {
+            logger.warn("Routes file {} not found, using application properties only", routesFile);
+            return List.of();
+        }
+
+        PropertySourceLoader loader = routesFile.endsWith(".yml") || routesFile.endsWith(".yaml")
+                ? new YamlPropertySourceLoader()
+                : new PropertiesPropertySourceLoader();
+        try {
+            return loader.load("gateway-routes-file", resource);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read routes file " + routesFile, e);
+        }
+    }
+}
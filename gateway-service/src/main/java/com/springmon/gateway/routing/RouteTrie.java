@@ -0,0 +1,218 @@
+package com.springmon.gateway.routing;
+
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Trie di caratteri compilato dalle rotte. Il match scorre il path una sola volta e non alloca:
+ * vince la rotta esatta, altrimenti il prefisso /** piu' lungo; a parita' di nodo vince
+ * la prima rotta dichiarata che ammette il metodo.
+ */
+public final class RouteTrie {
+
+    private static final String PREFIX_SUFFIX = "/**";
+
+    private final Node root;
+    private final List<Route> routes;
+
+    private RouteTrie(Node root, List<Route> routes) {
+        this.root = root;
+        this.routes = routes;
+    }
+
+    /**
+     * Valida e compila le rotte configurate
+     */
+    public static RouteTrie compile(GatewayRoutesProperties properties, Duration defaultTimeout) {
+        Map<String, String> upstreams = properties.getUpstreams();
+        List<Route> routes = new ArrayList<>();
+        Builder root = new Builder();
+
+        int index = 0;
+        for (RouteDefinition definition : properties.getRoutes()) {
+            String id = StringUtils.hasText(definition.getId()) ? definition.getId() : "route-" + index;
+            index++;
+
+            String path = definition.getPath();
+            if (path == null || !path.startsWith("/")) {
+                throw new IllegalArgumentException("Route " + id + ": path must start with '/'");
+            }
+            boolean prefix = path.endsWith(PREFIX_SUFFIX);
+            String literal = prefix ? path.substring(0, path.length() - PREFIX_SUFFIX.length()) : path;
+            if (literal.indexOf('*') >= 0) {
+                throw new IllegalArgumentException("Route " + id + ": only a trailing /** wildcard is supported");
+            }
+
+            String upstreamValue = upstreams.get(definition.getUpstream());
+            if (!StringUtils.hasText(upstreamValue)) {
+                throw new IllegalArgumentException("Route " + id + ": unknown upstream " + definition.getUpstream());
+            }
+            List<String> upstreamUrls = new ArrayList<>();
+            for (String url : StringUtils.commaDelimitedListToStringArray(upstreamValue)) {
+                String trimmed = url.trim();
+                if (trimmed.endsWith("/")) {
+                    trimmed = trimmed.substring(0, trimmed.length() - 1);
+                }
+                if (!trimmed.startsWith("http://") && !trimmed.startsWith("https://")) {
+                    throw new IllegalArgumentException("Route " + id + ": invalid upstream URL '" + url + "'");
+                }
+                if (!upstreamUrls.contains(trimmed)) {
+                    upstreamUrls.add(trimmed);
+                }
+            }
+
+            List<String> methods = new ArrayList<>();
+            int methodMask = definition.getMethods().isEmpty() ? Route.ALL_METHODS : 0;
+            for (String method : definition.getMethods()) {
+                String normalized = method.trim().toUpperCase(Locale.ROOT);
+                int bit = Route.methodBit(normalized);
+                if (bit == 0) {
+                    throw new IllegalArgumentException("Route " + id + ": unsupported method " + method);
+                }
+                methods.add(normalized);
+                methodMask |= bit;
+            }
+
+            RateLimit rateLimit = null;
+            if (definition.getRateLimit() != null) {
+                try {
+                    rateLimit = new RateLimit(definition.getRateLimit().getReplenishRate(),
+                            definition.getRateLimit().getBurstCapacity());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Route " + id + ": rate-limit." + e.getMessage());
+                }
+            }
+
+            CachePolicy cache = null;
+            if (definition.getCache() != null) {
+                try {
+                    cache = new CachePolicy(definition.getCache().getTtl(), definition.getCache().getStaleGrace());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Route " + id + ": cache." + e.getMessage());
+                }
+            }
+
+            HedgePolicy hedge = null;
+            if (definition.getHedge() != null) {
+                try {
+                    hedge = new HedgePolicy(definition.getHedge().getPercentile(), definition.getHedge().getMinDelay());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Route " + id + ": hedge." + e.getMessage());
+                }
+            }
+
+            Route route = new Route(id, path, Collections.unmodifiableList(methods), methodMask,
+                    definition.getUpstream(), List.copyOf(upstreamUrls),
+                    definition.getTimeout() != null ? definition.getTimeout() : defaultTimeout,
+                    definition.isAuthRequired(), rateLimit, cache, definition.isCoalesce(), hedge);
+            routes.add(route);
+
+            Builder node = root;
+            for (int i = 0; i < literal.length(); i++) {
+                node = node.children.computeIfAbsent(literal.charAt(i), c -> new Builder());
+            }
+            (prefix ? node.prefixRoutes : node.exactRoutes).add(route);
+        }
+
+        return new RouteTrie(root.build(), Collections.unmodifiableList(routes));
+    }
+
+    /**
+     * Rotta per metodo e path (senza query string), oppure null
+     */
+    public Route match(String method, String path) {
+        int methodBit = Route.methodBit(method);
+        if (methodBit == 0) {
+            return null;
+        }
+
+        Node node = root;
+        Route prefixMatch = null;
+        int length = path.length();
+        for (int i = 0; ; i++) {
+            // Un prefisso vale solo a confine di segmento: /api/users copre /api/users/1 ma non /api/usersX
+            if (node.prefixRoutes != null && (i == length || path.charAt(i) == '/')) {
+                Route route = select(node.prefixRoutes, methodBit);
+                if (route != null) {
+                    prefixMatch = route;
+                }
+            }
+            if (i == length) {
+                Route exact = node.exactRoutes != null ? select(node.exactRoutes, methodBit) : null;
+                return exact != null ? exact : prefixMatch;
+            }
+            node = node.child(path.charAt(i));
+            if (node == null) {
+                return prefixMatch;
+            }
+        }
+    }
+
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    private static Route select(Route[] candidates, int methodBit) {
+        for (Route route : candidates) {
+            if (route.allows(methodBit)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Nodo compilato: figli in array ordinati per carattere (ricerca binaria)
+     */
+    private static final class Node {
+
+        private final char[] labels;
+        private final Node[] children;
+        private final Route[] exactRoutes;
+        private final Route[] prefixRoutes;
+
+        Node(char[] labels, Node[] children, Route[] exactRoutes, Route[] prefixRoutes) {
+            this.labels = labels;
+            this.children = children;
+            this.exactRoutes = exactRoutes;
+            this.prefixRoutes = prefixRoutes;
+        }
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(labels, c);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+
+    /**
+     * Nodo mutabile usato solo durante la compilazione
+     */
+    private static final class Builder {
+
+        private final TreeMap<Character, Builder> children = new TreeMap<>();
+        private final List<Route> exactRoutes = new ArrayList<>();
+        private final List<Route> prefixRoutes = new ArrayList<>();
+
+        Node build() {
+            char[] labels = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Builder> entry : children.entrySet()) {
+                labels[i] = entry.getKey();
+                nodes[i] = entry.getValue().build();
+                i++;
+            }
+            return new Node(labels, nodes,
+                    exactRoutes.isEmpty() ? null : exactRoutes.toArray(new Route[0]),
+                    prefixRoutes.isEmpty() ? null : prefixRoutes.toArray(new Route[0]));
+        }
+    }
+}
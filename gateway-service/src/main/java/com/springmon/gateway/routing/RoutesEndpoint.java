@@ -0,0 +1,42 @@
+package com.springmon.gateway.routing;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoint actuator /actuator/routes: GET elenca le rotte attive, POST le ricarica.
+ * Servito sulla porta di management; se coincide con quella pubblica il POST richiede ROLE_ADMIN
+ */
+@Component
+@Endpoint(id = "routes")
+public class RoutesEndpoint {
+
+    private final RouteTable routeTable;
+
+    public RoutesEndpoint(RouteTable routeTable) {
+        this.routeTable = routeTable;
+    }
+
+    @ReadOperation
+    public List<Route> routes() {
+        return routeTable.getRoutes();
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> reload() {
+        try {
+            List<Route> routes = routeTable.reload();
+            return new WebEndpointResponse<>(Map.of("status", "reloaded", "routes", routes));
+        } catch (RuntimeException e) {
+            return new WebEndpointResponse<>(
+                    Map.of("status", "failed", "error", String.valueOf(e.getMessage())),
+                    WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.springmon.gateway.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Asserzione di identita' firmata dal gateway per i servizi interni (header X-Internal-Identity):
+ * chi la riceve non deve ri-verificare il JWT. Layout binario, poi Base64 URL senza padding:
+ * <pre>
+ * versione (1 byte) | scadenza epoch millis (8 byte)
+ * subject | roles | request id   (ciascuno: lunghezza unsigned short + UTF-8)
+ * HMAC-SHA256 dei byte precedenti troncato a 16 byte
+ * </pre>
+ * La scadenza e' breve (ttl-ms) e mai oltre quella del JWT. Il formato e' lo stesso
+ * di InternalIdentityVerifier in user-service.
+ */
+@Component
+public class InternalIdentitySigner {
+
+    public static final String HEADER = "X-Internal-Identity";
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+    /**
+     * Attributo di request con l'asserzione da inoltrare ai servizi interni
+     */
+    public static final String ATTRIBUTE = InternalIdentitySigner.class.getName() + ".IDENTITY";
+
+    /**
+     * Attributo di request con il request id generato dal gateway (se il client non lo ha inviato)
+     */
+    public static final String REQUEST_ID_ATTRIBUTE = InternalIdentitySigner.class.getName() + ".REQUEST_ID";
+
+    private static final byte VERSION = 1;
+    private static final int MAC_LENGTH = 16;
+    private static final int MAX_REQUEST_ID_LENGTH = 128;
+
+    @Value("${internal-identity.enabled:true}")
+    private boolean enabled;
+
+    @Value("${internal-identity.secret:springmon_internal_identity_key_2024_change_me}")
+    private String secret;
+
+    @Value("${internal-identity.ttl-ms:30000}")
+    private long ttlMs;
+
+    private ThreadLocal<Mac> macs;
+
+    @PostConstruct
+    public void init() {
+        SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 not available", e);
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Asserzione per i claims verificati della richiesta; il request id e' quello del client
+     * (X-Request-Id) oppure uno nuovo, salvato in REQUEST_ID_ATTRIBUTE per inoltrarlo
+     */
+    public String sign(VerifiedClaims claims, HttpServletRequest request) {
+        String requestId = request.getHeader(REQUEST_ID_HEADER);
+        if (requestId == null || requestId.isEmpty() || requestId.length() > MAX_REQUEST_ID_LENGTH) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            requestId = new UUID(random.nextLong(), random.nextLong()).toString();
+            request.setAttribute(REQUEST_ID_ATTRIBUTE, requestId);
+        }
+        return sign(claims, requestId);
+    }
+
+    /**
+     * Asserzione per subject, ruoli e request id; null se un campo non sta nel layout
+     */
+    public String sign(VerifiedClaims claims, String requestId) {
+        byte[] subject = claims.getSubject().getBytes(StandardCharsets.UTF_8);
+        byte[] roles = claims.getRoles() != null ? claims.getRoles().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] id = requestId.getBytes(StandardCharsets.UTF_8);
+        if (subject.length > 0xFFFF || roles.length > 0xFFFF || id.length > 0xFFFF) {
+            return null;
+        }
+
+        long expiresAt = Math.min(System.currentTimeMillis() + ttlMs, claims.getExpiresAtMillis());
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 6 + subject.length + roles.length + id.length + MAC_LENGTH);
+        buffer.put(VERSION).putLong(expiresAt);
+        buffer.putShort((short) subject.length).put(subject);
+        buffer.putShort((short) roles.length).put(roles);
+        buffer.putShort((short) id.length).put(id);
+
+        Mac mac = macs.get();
+        mac.update(buffer.array(), 0, buffer.position());
+        buffer.put(mac.doFinal(), 0, MAC_LENGTH);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+}
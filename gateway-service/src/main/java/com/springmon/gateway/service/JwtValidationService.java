@@ -2,97 +2,180 @@ package com.springmon.gateway.service;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class JwtValidationService {
 
+    private static final String CACHE_NAME = "jwt-claims";
+
     @Value("${jwt.secret:springmon_jwt_secret_key_2024_very_secure_random_string}")
     private String jwtSecret;
 
     @Value("${jwt.expiration:3600000}")
     private Long jwtExpiration;
 
+    @Value("${jwt.cache.max-size:10000}")
+    private int cacheMaxSize;
+
+    private final MeterRegistry meterRegistry;
+
+    private final TokenRevocations revocations;
+
+    private JwtParser jwtParser;
+
+    private VerifiedClaimsCache claimsCache;
+
+    private Timer cachedTimer;
+    private Timer validTimer;
+    private Timer invalidTimer;
+    private Timer revokedTimer;
+
+    public JwtValidationService(MeterRegistry meterRegistry, TokenRevocations revocations) {
+        this.meterRegistry = meterRegistry;
+        this.revocations = revocations;
+    }
+
     /**
-     * Valida il token JWT localmente nel gateway
-     */    public boolean validateToken(String token) {
-        try {
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-            
-            Jws<Claims> claimsJws = Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token);
-            
-            // Controlla scadenza
-            Date expiration = claimsJws.getPayload().getExpiration();
-            return expiration.after(new Date());
-            
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
+     * Costruisce una sola volta chiave HMAC, parser e cache dei claims
+     */
+    @PostConstruct
+    public void init() {
+        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parser().verifyWith(key).build();
+        this.claimsCache = new VerifiedClaimsCache(cacheMaxSize);
+
+        FunctionCounter.builder("cache.gets", claimsCache, VerifiedClaimsCache::hitCount)
+                .tags("cache", CACHE_NAME, "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", claimsCache, VerifiedClaimsCache::missCount)
+                .tags("cache", CACHE_NAME, "result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", claimsCache, VerifiedClaimsCache::evictionCount)
+                .tags("cache", CACHE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", claimsCache, VerifiedClaimsCache::size)
+                .tags("cache", CACHE_NAME)
+                .register(meterRegistry);
+
+        this.cachedTimer = verificationTimer("cached");
+        this.validTimer = verificationTimer("valid");
+        this.invalidTimer = verificationTimer("invalid");
+        this.revokedTimer = verificationTimer("revoked");
+    }
+
+    private Timer verificationTimer(String result) {
+        return Timer.builder("gateway.jwt.verification")
+                .description("Verifica del JWT nel gateway: claims dalla cache, firma valida, token rifiutato o revocato")
+                .tags("result", result)
+                .register(meterRegistry);
     }
 
     /**
-     * Estrae l'username dal token JWT
-     */    public String getUsernameFromToken(String token) {
-        try {
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-            
-            Claims claims = Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-            
-            return claims.getSubject();
-            
-        } catch (JwtException | IllegalArgumentException e) {
+     * Verifica il token una sola volta e restituisce i claims immutabili,
+     * oppure null se il token non e' valido, e' scaduto o e' stato revocato.
+     * I token validi restano in cache fino alla loro scadenza; la revoca
+     * e' controllata a ogni richiesta, solo in memoria.
+     */
+    public VerifiedClaims verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        VerifiedClaimsCache.TokenDigest key = VerifiedClaimsCache.digest(token);
+        VerifiedClaims cached = claimsCache.get(key, now);
+        if (cached != null) {
+            if (revocations.isRevoked(cached)) {
+                revokedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return null;
+            }
+            cachedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return cached;
+        }
+
+        VerifiedClaims verified = parse(token, key, now);
+        if (verified != null && revocations.isRevoked(verified)) {
+            revokedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             return null;
         }
+        (verified != null ? validTimer : invalidTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return verified;
     }
 
-    /**
-     * Estrae i ruoli dal token JWT
-     */    public String getRolesFromToken(String token) {
+    private VerifiedClaims parse(String token, VerifiedClaimsCache.TokenDigest key, long now) {
         try {
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-            
-            Claims claims = Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-            
-            return claims.get("roles", String.class);
-            
+            Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+
+            Date expiration = claims.getExpiration();
+            if (expiration == null || expiration.getTime() <= now) {
+                return null;
+            }
+
+            Date issuedAt = claims.getIssuedAt();
+            VerifiedClaims verified = new VerifiedClaims(
+                claims.getSubject(),
+                claims.get("roles", String.class),
+                issuedAt != null ? issuedAt.getTime() : 0L,
+                expiration.getTime(),
+                claims.getId()
+            );
+            claimsCache.put(key, verified, now);
+            return verified;
+
         } catch (JwtException | IllegalArgumentException e) {
             return null;
         }
     }
 
+    /**
+     * Rimuove periodicamente dalla cache i token scaduti anche senza traffico
+     */
+    @Scheduled(fixedDelayString = "${jwt.cache.sweep-interval-ms:30000}")
+    public void evictExpiredClaims() {
+        claimsCache.evictExpired();
+    }
+
+    /**
+     * Valida il token JWT localmente nel gateway
+     */
+    public boolean validateToken(String token) {
+        return verify(token) != null;
+    }
+
+    /**
+     * Estrae l'username dal token JWT
+     */
+    public String getUsernameFromToken(String token) {
+        VerifiedClaims claims = verify(token);
+        return claims != null ? claims.getSubject() : null;
+    }
+
+    /**
+     * Estrae i ruoli dal token JWT
+     */
+    public String getRolesFromToken(String token) {
+        VerifiedClaims claims = verify(token);
+        return claims != null ? claims.getRoles() : null;
+    }
+
     /**
      * Verifica se il token è scaduto
-     */    public boolean isTokenExpired(String token) {
-        try {
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-            
-            Claims claims = Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-            
-            Date expiration = claims.getExpiration();
-            return expiration.before(new Date());
-            
-        } catch (JwtException | IllegalArgumentException e) {
-            return true;
-        }
+     */
+    public boolean isTokenExpired(String token) {
+        return verify(token) == null;
     }
 }
@@ -0,0 +1,211 @@
+package com.springmon.gateway.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tiene allineato TokenRevocations con le revoche dell'auth-service su Redis: applica i messaggi
+ * pub/sub e rilegge i sorted set a ogni (ri)sottoscrizione del canale, cioe' all'avvio e dopo
+ * ogni riconnessione, piu' un resync periodico di sicurezza. Se Redis non risponde il gateway
+ * continua con l'ultima copia nota: nessuna chiamata di rete sul percorso della richiesta.
+ * Chiavi e formato dei messaggi sono quelli di TokenRevocationService nell'auth-service.
+ */
+public class TokenRevocationSync implements MessageListener, SubscriptionListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationSync.class);
+
+    public static final String TOKENS_KEY = "springmon:revoked:tokens";
+    public static final String USERS_KEY = "springmon:revoked:users";
+    public static final String CHANNEL = "springmon:revocations";
+
+    private final TokenRevocations revocations;
+
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * Non gestito dal ciclo di vita Spring: se Redis non c'e' all'avvio il container fallirebbe
+     * lo start del contesto. Lo avvia ensureSubscribed; dopo la prima sottoscrizione le riconnessioni
+     * le gestisce il client Redis e ogni nuova sottoscrizione richiama onChannelSubscribed.
+     */
+    private final RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+
+    private volatile boolean startFailureLogged;
+
+    private final Counter resyncs;
+    private final Counter resyncFailures;
+
+    /**
+     * La notifica di sottoscrizione arriva su un thread di I/O: il resync (bloccante) va altrove
+     */
+    private final ExecutorService resyncExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "revocation-resync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean resyncPending = new AtomicBoolean();
+
+    public TokenRevocationSync(TokenRevocations revocations, StringRedisTemplate redisTemplate,
+                               RedisConnectionFactory connectionFactory, MeterRegistry meterRegistry) {
+        this.revocations = revocations;
+        this.redisTemplate = redisTemplate;
+        this.container.setConnectionFactory(connectionFactory);
+        this.resyncs = Counter.builder("gateway.revocation.resyncs")
+                .description("Riletture complete delle revoche da Redis")
+                .register(meterRegistry);
+        this.resyncFailures = Counter.builder("gateway.revocation.resync.failures")
+                .description("Riletture delle revoche fallite (resta valida l'ultima copia)")
+                .register(meterRegistry);
+        Gauge.builder("gateway.revocation.entries", revocations, TokenRevocations::tokenCount)
+                .description("Revoche attive in memoria")
+                .tags("type", "token")
+                .register(meterRegistry);
+        Gauge.builder("gateway.revocation.entries", revocations, TokenRevocations::userCount)
+                .description("Revoche attive in memoria")
+                .tags("type", "user")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        container.addMessageListener(this, new ChannelTopic(CHANNEL));
+        container.afterPropertiesSet();
+        ensureSubscribed();
+    }
+
+    /**
+     * Avvia la sottoscrizione finche' non riesce (Redis irraggiungibile all'avvio)
+     */
+    @Scheduled(fixedDelayString = "${gateway.revocation.subscribe-retry-ms:5000}",
+            initialDelayString = "${gateway.revocation.subscribe-retry-ms:5000}")
+    public void ensureSubscribed() {
+        if (container.isListening()) {
+            return;
+        }
+        try {
+            container.start();
+            startFailureLogged = false;
+        } catch (RuntimeException e) {
+            // Lo start fallito lascia il container "avviato": stop lo riporta allo stato iniziale
+            container.stop();
+            if (!startFailureLogged) {
+                startFailureLogged = true;
+                logger.warn("Cannot subscribe to {}, retrying in background: {}", CHANNEL, e.toString());
+            }
+        }
+    }
+
+    /**
+     * Messaggio "token|user score member" pubblicato dall'auth-service
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split(" ", 3);
+        try {
+            if (parts.length == 3 && "token".equals(parts[0])) {
+                revocations.revokeToken(parts[2], Long.parseLong(parts[1]));
+                return;
+            }
+            int subjectStart = parts.length == 3 && "user".equals(parts[0]) ? subjectStart(parts[2]) : -1;
+            if (subjectStart > 0) {
+                revocations.revokeUser(parts[2].substring(subjectStart),
+                        Long.parseLong(parts[2].substring(0, subjectStart - 1)), Long.parseLong(parts[1]));
+                return;
+            }
+        } catch (NumberFormatException e) {
+            // messaggio non valido, gestito sotto
+        }
+        logger.warn("Ignoring malformed revocation message: {}", body);
+    }
+
+    /**
+     * Sottoscrizione (ri)stabilita: i messaggi persi mentre il canale era giu' si recuperano dai sorted set
+     */
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        logger.info("Subscribed to {}, resyncing revocations", CHANNEL);
+        requestResync();
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.revocation.resync-interval-ms:300000}",
+            initialDelayString = "${gateway.revocation.resync-interval-ms:300000}")
+    public void requestResync() {
+        if (resyncPending.compareAndSet(false, true)) {
+            resyncExecutor.execute(() -> {
+                resyncPending.set(false);
+                resync();
+            });
+        }
+    }
+
+    private void resync() {
+        long now = System.currentTimeMillis();
+        try {
+            Map<String, Long> tokens = new HashMap<>();
+            for (ZSetOperations.TypedTuple<String> tuple : read(TOKENS_KEY, now)) {
+                tokens.put(tuple.getValue(), tuple.getScore().longValue());
+            }
+            Map<String, TokenRevocations.UserCutoff> users = new HashMap<>();
+            for (ZSetOperations.TypedTuple<String> tuple : read(USERS_KEY, now)) {
+                String member = tuple.getValue();
+                int subjectStart = subjectStart(member);
+                if (subjectStart > 0) {
+                    users.merge(member.substring(subjectStart),
+                            new TokenRevocations.UserCutoff(Long.parseLong(member.substring(0, subjectStart - 1)),
+                                    tuple.getScore().longValue()),
+                            TokenRevocations.UserCutoff::latest);
+                }
+            }
+            revocations.replace(tokens, users, now);
+            resyncs.increment();
+            logger.info("Revocations resynced: {} tokens, {} users", revocations.tokenCount(), revocations.userCount());
+        } catch (RuntimeException e) {
+            resyncFailures.increment();
+            logger.warn("Revocation resync failed, keeping {} tokens and {} users: {}",
+                    revocations.tokenCount(), revocations.userCount(), e.toString());
+        }
+    }
+
+    private Set<ZSetOperations.TypedTuple<String>> read(String key, long now) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = redisTemplate.opsForZSet()
+                .rangeByScoreWithScores(key, now, Double.POSITIVE_INFINITY);
+        return tuples != null ? tuples : Set.of();
+    }
+
+    /**
+     * Member "notBefore:username": indice dello username, -1 se il formato non e' valido
+     */
+    private static int subjectStart(String member) {
+        int separator = member.indexOf(':');
+        return separator > 0 && separator < member.length() - 1 ? separator + 1 : -1;
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        container.destroy();
+        resyncExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,225 @@
+package com.springmon.gateway.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Copia locale delle revoche pubblicate dall'auth-service: jti dei singoli token e, per utente,
+ * l'istante fino al quale i token emessi non valgono piu'. Il controllo per richiesta e' solo in memoria:
+ * un Bloom filter compatto scarta quasi tutti i jti e solo i possibili positivi vanno sulla mappa esatta.
+ * Le revoche non si annullano mai, scadono con il token: le scritture (rare) sono serializzate,
+ * le letture non prendono lock.
+ */
+@Component
+public class TokenRevocations {
+
+    private final int expectedEntries;
+
+    private final Object writeLock = new Object();
+
+    private volatile State state;
+
+    public TokenRevocations(@Value("${gateway.revocation.expected-entries:100000}") int expectedEntries) {
+        this.expectedEntries = expectedEntries;
+        this.state = new State(expectedEntries);
+    }
+
+    /**
+     * true se il token e' stato revocato (per jti o per utente)
+     */
+    public boolean isRevoked(VerifiedClaims claims) {
+        State current = state;
+        if (!current.users.isEmpty()) {
+            UserCutoff cutoff = current.users.get(claims.getSubject());
+            // iat ha la precisione del secondo: un token emesso nello stesso secondo della revoca e' revocato
+            if (cutoff != null && claims.getIssuedAtMillis() <= cutoff.notBeforeMillis) {
+                return true;
+            }
+        }
+        String tokenId = claims.getTokenId();
+        return tokenId != null
+                && !current.tokens.isEmpty()
+                && current.bloom.mightContain(tokenId)
+                && current.tokens.containsKey(tokenId);
+    }
+
+    /**
+     * Revoca il token con questo jti fino alla sua scadenza
+     */
+    public void revokeToken(String tokenId, long expiresAtMillis) {
+        synchronized (writeLock) {
+            addToken(state, tokenId, expiresAtMillis);
+        }
+    }
+
+    /**
+     * Revoca i token dell'utente emessi fino a notBeforeMillis; la voce serve fino a expiresAtMillis
+     */
+    public void revokeUser(String subject, long notBeforeMillis, long expiresAtMillis) {
+        synchronized (writeLock) {
+            addUser(state, subject, new UserCutoff(notBeforeMillis, expiresAtMillis));
+        }
+    }
+
+    /**
+     * Resync completo: unisce le revoche lette dalla sorgente a quelle gia' note
+     * (una revoca arrivata durante la lettura non si perde) e scarta le scadute
+     */
+    public void replace(Map<String, Long> tokens, Map<String, UserCutoff> users, long nowMillis) {
+        synchronized (writeLock) {
+            State current = state;
+            State next = new State(Math.max(expectedEntries, 2 * (tokens.size() + current.tokens.size())));
+            current.tokens.forEach((id, expiresAt) -> {
+                if (expiresAt > nowMillis) {
+                    addToken(next, id, expiresAt);
+                }
+            });
+            tokens.forEach((id, expiresAt) -> {
+                if (expiresAt > nowMillis) {
+                    addToken(next, id, expiresAt);
+                }
+            });
+            current.users.forEach((subject, cutoff) -> {
+                if (cutoff.expiresAtMillis > nowMillis) {
+                    addUser(next, subject, cutoff);
+                }
+            });
+            users.forEach((subject, cutoff) -> {
+                if (cutoff.expiresAtMillis > nowMillis) {
+                    addUser(next, subject, cutoff);
+                }
+            });
+            state = next;
+        }
+    }
+
+    /**
+     * Scarta le revoche dei token ormai scaduti e ricostruisce il Bloom filter
+     */
+    @Scheduled(fixedDelayString = "${gateway.revocation.sweep-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        State current = state;
+        boolean expired = current.tokens.values().stream().anyMatch(expiresAt -> expiresAt <= now)
+                || current.users.values().stream().anyMatch(cutoff -> cutoff.expiresAtMillis <= now);
+        if (expired) {
+            replace(Map.of(), Map.of(), now);
+        }
+    }
+
+    public int tokenCount() {
+        return state.tokens.size();
+    }
+
+    public int userCount() {
+        return state.users.size();
+    }
+
+    private static void addToken(State target, String tokenId, long expiresAtMillis) {
+        target.bloom.add(tokenId);
+        target.tokens.merge(tokenId, expiresAtMillis, Math::max);
+    }
+
+    private static void addUser(State target, String subject, UserCutoff cutoff) {
+        target.users.merge(subject, cutoff, UserCutoff::latest);
+    }
+
+    /**
+     * Revoca per utente: token emessi fino a notBefore, voce valida fino a expiresAt
+     */
+    public static final class UserCutoff {
+
+        private final long notBeforeMillis;
+        private final long expiresAtMillis;
+
+        public UserCutoff(long notBeforeMillis, long expiresAtMillis) {
+            this.notBeforeMillis = notBeforeMillis;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        /**
+         * Tra due revoche dello stesso utente vale la piu' recente
+         */
+        public static UserCutoff latest(UserCutoff a, UserCutoff b) {
+            return a.notBeforeMillis >= b.notBeforeMillis ? a : b;
+        }
+    }
+
+    private static final class State {
+
+        private final BloomFilter bloom;
+        private final ConcurrentHashMap<String, Long> tokens = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, UserCutoff> users = new ConcurrentHashMap<>();
+
+        State(int expectedEntries) {
+            this.bloom = new BloomFilter(expectedEntries);
+        }
+    }
+
+    /**
+     * Bloom filter a circa l'1% di falsi positivi alla capienza prevista; oltre la capienza
+     * i falsi positivi crescono ma la mappa esatta resta la verita'
+     */
+    static final class BloomFilter {
+
+        private static final double BITS_PER_ENTRY = 9.6;
+        private static final int MAX_HASHES = 8;
+
+        private final AtomicLongArray words;
+        private final int mask;
+        private final int hashes;
+
+        BloomFilter(int expectedEntries) {
+            int bits = Integer.highestOneBit((int) Math.min(1 << 30,
+                    Math.max(64, (long) (expectedEntries * BITS_PER_ENTRY))) * 2 - 1);
+            this.words = new AtomicLongArray(bits >>> 6);
+            this.mask = bits - 1;
+            this.hashes = (int) Math.max(1, Math.min(MAX_HASHES,
+                    Math.round((double) bits / Math.max(1, expectedEntries) * Math.log(2))));
+        }
+
+        void add(String value) {
+            long hash = mix(value.hashCode());
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                int bit = (h1 + i * h2) & mask;
+                long word = words.get(bit >>> 6);
+                long flag = 1L << bit;
+                if ((word & flag) == 0) {
+                    words.getAndUpdate(bit >>> 6, w -> w | flag);
+                }
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = mix(value.hashCode());
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                int bit = (h1 + i * h2) & mask;
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Finalizzatore di MurmurHash3: distribuisce i 32 bit di String.hashCode (gia' in cache nella stringa)
+         */
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
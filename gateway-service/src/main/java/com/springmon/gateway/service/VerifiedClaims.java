@@ -0,0 +1,60 @@
+package com.springmon.gateway.service;
+
+/**
+ * Claims immutabili di un token JWT gia' verificato (firma e scadenza)
+ */
+public final class VerifiedClaims {
+
+    private final String subject;
+    private final String roles;
+    private final long issuedAtMillis;
+    private final long expiresAtMillis;
+    private final String tokenId;
+
+    public VerifiedClaims(String subject, String roles, long issuedAtMillis, long expiresAtMillis, String tokenId) {
+        this.subject = subject;
+        this.roles = roles;
+        this.issuedAtMillis = issuedAtMillis;
+        this.expiresAtMillis = expiresAtMillis;
+        this.tokenId = tokenId;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getRoles() {
+        return roles;
+    }
+
+    public long getIssuedAtMillis() {
+        return issuedAtMillis;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    /**
+     * Claim jti, null per i token emessi prima della revoca per token
+     */
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    /**
+     * Verifica se i claims sono scaduti rispetto all'istante indicato
+     */
+    public boolean isExpired(long nowMillis) {
+        return expiresAtMillis <= nowMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "VerifiedClaims{" +
+                "subject='" + subject + '\'' +
+                ", roles='" + roles + '\'' +
+                ", expiresAtMillis=" + expiresAtMillis +
+                '}';
+    }
+}
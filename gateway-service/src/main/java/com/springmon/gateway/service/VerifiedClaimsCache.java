@@ -0,0 +1,166 @@
+package com.springmon.gateway.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache limitata e concorrente dei claims verificati, indicizzata per digest SHA-256 del token.
+ * Ogni entry scade insieme al token (claim exp); oltre maxSize Caffeine sceglie la vittima in tempo
+ * costante (W-TinyLFU), quindi put non scorre mai la mappa e un token nuovo viene sempre memorizzato.
+ * Il token in chiaro non viene mai trattenuto.
+ */
+public class VerifiedClaimsCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final Cache<TokenDigest, VerifiedClaims> entries;
+    private final int maxSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public VerifiedClaimsCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .evictionListener((key, claims, cause) -> evictions.increment())
+                .build();
+    }
+
+    /**
+     * Calcola la chiave di cache per il token
+     */
+    public static TokenDigest digest(String token) {
+        MessageDigest md = SHA_256.get();
+        md.reset();
+        ByteBuffer hash = ByteBuffer.wrap(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        return new TokenDigest(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+    }
+
+    /**
+     * Restituisce i claims in cache se presenti e non scaduti, altrimenti null
+     */
+    public VerifiedClaims get(TokenDigest key, long nowMillis) {
+        VerifiedClaims claims = entries.getIfPresent(key);
+        if (claims == null) {
+            misses.increment();
+            return null;
+        }
+        // Caffeine rimuove le entry scadute in modo ritardato: il confronto con exp resta esatto
+        if (claims.isExpired(nowMillis)) {
+            if (entries.asMap().remove(key, claims)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return claims;
+    }
+
+    /**
+     * Inserisce i claims; con la cache piena Caffeine rimuove un'altra entry, mai il token nuovo
+     * prima di averlo memorizzato. I claims gia' scaduti non vengono inseriti; maxSize 0 disattiva la cache.
+     */
+    public void put(TokenDigest key, VerifiedClaims claims, long nowMillis) {
+        if (maxSize > 0 && !claims.isExpired(nowMillis)) {
+            entries.put(key, claims);
+        }
+    }
+
+    /**
+     * Esegue subito la manutenzione di Caffeine: rimozione delle entry scadute e rispetto di maxSize
+     */
+    public void evictExpired() {
+        entries.cleanUp();
+    }
+
+    public int size() {
+        return (int) entries.estimatedSize();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Durata di ogni entry: fino al claim exp del token, letta al momento dell'inserimento
+     */
+    private static final class UntilTokenExpiry implements Expiry<TokenDigest, VerifiedClaims> {
+
+        @Override
+        public long expireAfterCreate(TokenDigest key, VerifiedClaims claims, long currentTime) {
+            long remainingMillis = claims.getExpiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0L, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, VerifiedClaims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, VerifiedClaims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * Digest SHA-256 del token rappresentato come quattro long
+     */
+    public static final class TokenDigest {
+
+        private final long h0;
+        private final long h1;
+        private final long h2;
+        private final long h3;
+
+        TokenDigest(long h0, long h1, long h2, long h3) {
+            this.h0 = h0;
+            this.h1 = h1;
+            this.h2 = h2;
+            this.h3 = h3;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TokenDigest)) return false;
+            TokenDigest other = (TokenDigest) o;
+            return h0 == other.h0 && h1 == other.h1 && h2 == other.h2 && h3 == other.h3;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (h0 ^ (h0 >>> 32));
+        }
+    }
+}
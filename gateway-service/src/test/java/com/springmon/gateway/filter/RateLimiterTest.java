@@ -0,0 +1,95 @@
+package com.springmon.gateway.filter;
+
+import com.springmon.gateway.routing.RateLimit;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * 10 richieste al secondo, burst di 5: un token ogni 100 ms
+     */
+    private static final RateLimit LIMIT = new RateLimit(10, 5);
+
+    private final long start = System.nanoTime();
+
+    @Test
+    void admitsBurstThenRejectsWithWait() {
+        RateLimiter limiter = new RateLimiter(1000);
+
+        for (int remaining = 4; remaining >= 0; remaining--) {
+            long decision = limiter.tryAcquire("route", "client", LIMIT, start);
+            assertThat(RateLimiter.isAllowed(decision)).isTrue();
+            assertThat(decision).isEqualTo(remaining);
+        }
+
+        long rejected = limiter.tryAcquire("route", "client", LIMIT, start);
+        assertThat(RateLimiter.isAllowed(rejected)).isFalse();
+        assertThat(-rejected).isEqualTo(SECOND / 10);
+        assertThat(limiter.allowedCount()).isEqualTo(5);
+        assertThat(limiter.rejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void refillsAtReplenishRate() {
+        RateLimiter limiter = new RateLimiter(1000);
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("route", "client", LIMIT, start);
+        }
+
+        assertThat(RateLimiter.isAllowed(limiter.tryAcquire("route", "client", LIMIT, start + SECOND / 20))).isFalse();
+        assertThat(RateLimiter.isAllowed(limiter.tryAcquire("route", "client", LIMIT, start + SECOND / 10))).isTrue();
+        assertThat(RateLimiter.isAllowed(limiter.tryAcquire("route", "client", LIMIT, start + SECOND / 10))).isFalse();
+    }
+
+    @Test
+    void keepsBucketsPerRouteAndClient() {
+        RateLimiter limiter = new RateLimiter(1000);
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("route", "client", LIMIT, start);
+        }
+
+        assertThat(RateLimiter.isAllowed(limiter.tryAcquire("route", "client", LIMIT, start))).isFalse();
+        assertThat(RateLimiter.isAllowed(limiter.tryAcquire("route", "other", LIMIT, start))).isTrue();
+        assertThat(RateLimiter.isAllowed(limiter.tryAcquire("other-route", "client", LIMIT, start))).isTrue();
+    }
+
+    @Test
+    void stillLimitsWhenFullOfActiveClients() {
+        int maxKeys = 100;
+        RateLimiter limiter = new RateLimiter(maxKeys);
+        for (int i = 0; i < 10 * maxKeys; i++) {
+            limiter.tryAcquire("route", "flood-" + i, LIMIT, start);
+        }
+
+        int admitted = 0;
+        for (int i = 0; i < 20; i++) {
+            if (RateLimiter.isAllowed(limiter.tryAcquire("route", "newcomer", LIMIT, start))) {
+                admitted++;
+            }
+        }
+
+        assertThat(admitted).isEqualTo(LIMIT.getBurstCapacity());
+        assertThat(limiter.evictIdle(start)).isZero();
+        assertThat(limiter.evictedCount()).isPositive();
+    }
+
+    @Test
+    void evictsOnlyIdleBuckets() {
+        RateLimiter limiter = new RateLimiter(1000);
+        limiter.tryAcquire("route", "idle", LIMIT, start);
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("route", "busy", LIMIT, start);
+        }
+
+        assertThat(limiter.evictIdle(start + SECOND / 10)).isEqualTo(1);
+        assertThat(limiter.size()).isEqualTo(1);
+        assertThat(RateLimiter.isAllowed(limiter.tryAcquire("route", "busy", LIMIT, start + SECOND / 10))).isTrue();
+        assertThat(RateLimiter.isAllowed(limiter.tryAcquire("route", "busy", LIMIT, start + SECOND / 10))).isFalse();
+    }
+}
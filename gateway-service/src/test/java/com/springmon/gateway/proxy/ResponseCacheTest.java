@@ -0,0 +1,98 @@
+package com.springmon.gateway.proxy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheTest {
+
+    private static final long NOW = System.currentTimeMillis();
+    private static final long TTL = 30_000;
+    private static final long STALE_GRACE = 60_000;
+
+    private static UpstreamResponse response(String body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new UpstreamResponse(200, headers, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void servesFreshThenStaleThenNothing() {
+        ResponseCache cache = new ResponseCache(1 << 20);
+        cache.put("alice:/api/user/profile", response("{\"name\":\"alice\"}"), TTL, STALE_GRACE, NOW);
+
+        ResponseCache.Entry fresh = cache.get("alice:/api/user/profile", NOW + TTL - 1);
+        assertThat(fresh).isNotNull();
+        assertThat(fresh.isFresh(NOW + TTL - 1)).isTrue();
+
+        ResponseCache.Entry stale = cache.get("alice:/api/user/profile", NOW + TTL);
+        assertThat(stale).isSameAs(fresh);
+        assertThat(stale.isFresh(NOW + TTL)).isFalse();
+
+        assertThat(cache.get("alice:/api/user/profile", NOW + TTL + STALE_GRACE)).isNull();
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(cache.get("alice:/api/user/profile", NOW)).as("removed past the stale window").isNull();
+    }
+
+    @Test
+    void etagIsStrongAndDependsOnlyOnBody() {
+        ResponseCache cache = new ResponseCache(1 << 20);
+        ResponseCache.Entry first = cache.put("a", response("{\"v\":1}"), TTL, STALE_GRACE, NOW);
+        ResponseCache.Entry same = cache.put("b", response("{\"v\":1}"), TTL, STALE_GRACE, NOW);
+        ResponseCache.Entry changed = cache.put("c", response("{\"v\":2}"), TTL, STALE_GRACE, NOW);
+
+        assertThat(first.getEtag()).startsWith("\"").endsWith("\"").doesNotStartWith("W/");
+        assertThat(same.getEtag()).isEqualTo(first.getEtag());
+        assertThat(changed.getEtag()).isNotEqualTo(first.getEtag());
+    }
+
+    @Test
+    void allowsOneBackgroundRefreshAtATime() {
+        ResponseCache cache = new ResponseCache(1 << 20);
+        ResponseCache.Entry entry = cache.put("key", response("{}"), TTL, STALE_GRACE, NOW);
+
+        assertThat(entry.tryStartRefresh()).isTrue();
+        assertThat(entry.tryStartRefresh()).isFalse();
+        entry.refreshFailed();
+        assertThat(entry.tryStartRefresh()).isTrue();
+    }
+
+    @Test
+    void replacesEntryOnRefresh() {
+        ResponseCache cache = new ResponseCache(1 << 20);
+        cache.put("key", response("{\"v\":1}"), TTL, STALE_GRACE, NOW);
+        ResponseCache.Entry refreshed = cache.put("key", response("{\"v\":2}"), TTL, STALE_GRACE, NOW + TTL);
+
+        ResponseCache.Entry entry = cache.get("key", NOW + TTL);
+        assertThat(entry).isSameAs(refreshed);
+        assertThat(entry.isFresh(NOW + TTL)).isTrue();
+    }
+
+    @Test
+    void staysWithinMaxBytes() {
+        long maxBytes = 64 * 1024;
+        ResponseCache cache = new ResponseCache(maxBytes);
+        String body = "x".repeat(4096);
+        for (int i = 0; i < 100; i++) {
+            cache.put("user-" + i + ":/api/user/profile", response(body), TTL, STALE_GRACE, NOW);
+        }
+        cache.evictExpired();
+
+        assertThat(cache.weightedSize()).isPositive().isLessThanOrEqualTo(maxBytes);
+        assertThat(cache.size()).isLessThan(100);
+        assertThat(cache.evictionCount()).isPositive();
+    }
+
+    @Test
+    void weightCountsBodyHeadersAndKey() {
+        ResponseCache.Entry entry = new ResponseCache(1 << 20).put("key", response("x".repeat(1000)),
+                TTL, STALE_GRACE, NOW);
+
+        assertThat(ResponseCache.weight("key", entry))
+                .isGreaterThan(ResponseCache.ENTRY_OVERHEAD_BYTES + 1000 + 2 * "key".length());
+    }
+}
@@ -0,0 +1,87 @@
+package com.springmon.gateway.proxy;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final SingleFlight<String> singleFlight = new SingleFlight<>();
+
+    private final AtomicInteger subscriptions = new AtomicInteger();
+
+    /**
+     * Chiamata che conta le sottoscrizioni (cioe' le richieste all'upstream) e termina con il sink
+     */
+    private Mono<String> upstream(Sinks.One<String> sink) {
+        return Mono.defer(() -> {
+            subscriptions.incrementAndGet();
+            return sink.asMono();
+        });
+    }
+
+    @Test
+    void concurrentCallsWithSameKeyShareOneUpstreamCall() {
+        Sinks.One<String> sink = Sinks.one();
+
+        Mono<String> leader = singleFlight.execute("alice:/api/user/profile", () -> upstream(sink));
+        Mono<String> follower = singleFlight.execute("alice:/api/user/profile", () -> upstream(sink));
+        leader.subscribe();
+        follower.subscribe();
+        sink.tryEmitValue("profile");
+
+        assertThat(leader.block(TIMEOUT)).isEqualTo("profile");
+        assertThat(follower.block(TIMEOUT)).isEqualTo("profile");
+        assertThat(subscriptions).hasValue(1);
+        assertThat(singleFlight.leaderCount()).isEqualTo(1);
+        assertThat(singleFlight.collapsedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void sharesErrorsWithAllWaiters() {
+        Sinks.One<String> sink = Sinks.one();
+
+        Mono<String> leader = singleFlight.execute("key", () -> upstream(sink));
+        Mono<String> follower = singleFlight.execute("key", () -> upstream(sink));
+        sink.tryEmitError(new IllegalStateException("upstream down"));
+
+        assertThatThrownBy(() -> leader.block(TIMEOUT)).hasMessageContaining("upstream down");
+        assertThatThrownBy(() -> follower.block(TIMEOUT)).hasMessageContaining("upstream down");
+        assertThat(subscriptions).hasValue(1);
+    }
+
+    @Test
+    void doesNotReuseResultAfterCompletion() {
+        assertThat(singleFlight.execute("key", () -> Mono.just("first")).block(TIMEOUT)).isEqualTo("first");
+        assertThat(singleFlight.inFlightCount()).isZero();
+
+        assertThat(singleFlight.execute("key", () -> Mono.just("second")).block(TIMEOUT)).isEqualTo("second");
+        assertThat(singleFlight.leaderCount()).isEqualTo(2);
+        assertThat(singleFlight.collapsedCount()).isZero();
+    }
+
+    @Test
+    void keepsDifferentKeysApart() {
+        Sinks.One<String> alice = Sinks.one();
+        Sinks.One<String> bob = Sinks.one();
+
+        Mono<String> aliceCall = singleFlight.execute("alice", () -> upstream(alice));
+        Mono<String> bobCall = singleFlight.execute("bob", () -> upstream(bob));
+        assertThat(singleFlight.inFlightCount()).isEqualTo(2);
+        alice.tryEmitValue("a");
+        bob.tryEmitValue("b");
+
+        assertThat(aliceCall.block(TIMEOUT)).isEqualTo("a");
+        assertThat(bobCall.block(TIMEOUT)).isEqualTo("b");
+        assertThat(subscriptions).hasValue(2);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+}
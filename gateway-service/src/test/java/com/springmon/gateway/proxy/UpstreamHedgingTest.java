@@ -0,0 +1,162 @@
+package com.springmon.gateway.proxy;
+
+import com.springmon.gateway.routing.GatewayRoutesProperties;
+import com.springmon.gateway.routing.Route;
+import com.springmon.gateway.routing.RouteDefinition;
+import com.springmon.gateway.routing.RouteTrie;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UpstreamHedgingTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final UpstreamInstance first = new UpstreamInstance("user", "http://user-1:8081");
+    private final UpstreamInstance second = new UpstreamInstance("user", "http://user-2:8081");
+
+    private SimpleMeterRegistry meterRegistry;
+    private UpstreamLoadBalancer loadBalancer;
+    private UpstreamHedging hedging;
+    private Route route;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loadBalancer = mock(UpstreamLoadBalancer.class);
+        when(loadBalancer.hasAlternative(any(), any())).thenReturn(true);
+        hedging = new UpstreamHedging(loadBalancer, meterRegistry);
+        ReflectionTestUtils.setField(hedging, "budgetPercent", 10.0);
+        ReflectionTestUtils.setField(hedging, "maxBurst", 10);
+        route = hedgedRoute();
+    }
+
+    private static Route hedgedRoute() {
+        RouteDefinition.HedgeDefinition hedge = new RouteDefinition.HedgeDefinition();
+        hedge.setPercentile(0.5);
+        hedge.setMinDelay(Duration.ofMillis(10));
+        RouteDefinition definition = new RouteDefinition();
+        definition.setId("user-profile");
+        definition.setPath("/api/user/profile");
+        definition.setUpstream("user");
+        definition.setHedge(hedge);
+        GatewayRoutesProperties properties = new GatewayRoutesProperties();
+        properties.setUpstreams(Map.of("user", "http://user-1:8081,http://user-2:8081"));
+        properties.setRoutes(List.of(definition));
+        return RouteTrie.compile(properties, Duration.ofSeconds(5)).getRoutes().get(0);
+    }
+
+    /**
+     * Campioni sufficienti per il percentile; il delay si ricalcola alla prima chiamata dopo un secondo
+     */
+    private void warmUp() throws InterruptedException {
+        for (int i = 0; i < 60; i++) {
+            hedging.execute(route, (exclude, chosen) -> {
+                chosen.accept(first);
+                return Mono.just("warm-up");
+            }).block(TIMEOUT);
+        }
+        Thread.sleep(1100);
+    }
+
+    private double sent() {
+        return meterRegistry.get("gateway.hedging.sent").tag("route", route.getId()).counter().count();
+    }
+
+    private double won() {
+        return meterRegistry.get("gateway.hedging.won").tag("route", route.getId()).counter().count();
+    }
+
+    @Test
+    void doesNotHedgeWithoutEnoughSamples() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = hedging.execute(route, (exclude, chosen) -> {
+            attempts.incrementAndGet();
+            chosen.accept(first);
+            return Mono.delay(Duration.ofMillis(50)).thenReturn("primary");
+        }).block(TIMEOUT);
+
+        assertThat(result).isEqualTo("primary");
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void hedgesSlowPrimaryToAnotherInstanceAndCancelsIt() throws InterruptedException {
+        warmUp();
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+
+        String result = hedging.execute(route, (exclude, chosen) -> {
+            if (exclude == null) {
+                chosen.accept(first);
+                return Mono.<String>never().doOnCancel(() -> primaryCancelled.set(true));
+            }
+            assertThat(exclude).isSameAs(first);
+            chosen.accept(second);
+            return Mono.just("hedge");
+        }).block(TIMEOUT);
+
+        assertThat(result).isEqualTo("hedge");
+        assertThat(primaryCancelled).isTrue();
+        assertThat(sent()).isEqualTo(1);
+        assertThat(won()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotHedgeWithoutHealthyAlternative() throws InterruptedException {
+        warmUp();
+        when(loadBalancer.hasAlternative(any(), any())).thenReturn(false);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = hedging.execute(route, (exclude, chosen) -> {
+            attempts.incrementAndGet();
+            chosen.accept(first);
+            return Mono.delay(Duration.ofMillis(50)).thenReturn("primary");
+        }).block(TIMEOUT);
+
+        assertThat(result).isEqualTo("primary");
+        assertThat(attempts).hasValue(1);
+        assertThat(sent()).isZero();
+    }
+
+    /**
+     * Con max-burst 2 il budget accumulato nel warm-up vale due seconde chiamate; ogni chiamata
+     * accredita solo il 10% di un token, quindi le successive partono senza hedging
+     */
+    @Test
+    void capsHedgesByBudget() throws InterruptedException {
+        ReflectionTestUtils.setField(hedging, "maxBurst", 2);
+        warmUp();
+        AtomicInteger hedges = new AtomicInteger();
+
+        for (int i = 0; i < 10; i++) {
+            String result = hedging.execute(route, (exclude, chosen) -> {
+                if (exclude == null) {
+                    chosen.accept(first);
+                    return Mono.delay(Duration.ofMillis(30)).thenReturn("primary");
+                }
+                hedges.incrementAndGet();
+                chosen.accept(second);
+                return Mono.<String>never();
+            }).block(TIMEOUT);
+            assertThat(result).isEqualTo("primary");
+        }
+
+        assertThat(hedges).hasValue(2);
+        assertThat(sent()).isEqualTo(2);
+        assertThat(won()).isZero();
+    }
+}
@@ -0,0 +1,116 @@
+package com.springmon.gateway.proxy;
+
+import com.springmon.gateway.routing.GatewayRoutesProperties;
+import com.springmon.gateway.routing.Route;
+import com.springmon.gateway.routing.RouteDefinition;
+import com.springmon.gateway.routing.RouteTrie;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UpstreamLoadBalancerTest {
+
+    private UpstreamLoadBalancer loadBalancer;
+
+    @BeforeEach
+    void setUp() {
+        loadBalancer = new UpstreamLoadBalancer(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(loadBalancer, "ejectAfterFailures", 2);
+        ReflectionTestUtils.setField(loadBalancer, "healthCheckEnabled", true);
+        ReflectionTestUtils.setField(loadBalancer, "healthCheckPath", "/api/health");
+        ReflectionTestUtils.setField(loadBalancer, "healthCheckTimeoutMs", 1000L);
+    }
+
+    private static Route route(String urls) {
+        RouteDefinition definition = new RouteDefinition();
+        definition.setId("users");
+        definition.setPath("/api/users/**");
+        definition.setUpstream("user");
+        GatewayRoutesProperties properties = new GatewayRoutesProperties();
+        properties.setUpstreams(Map.of("user", urls));
+        properties.setRoutes(List.of(definition));
+        return RouteTrie.compile(properties, Duration.ofSeconds(5)).getRoutes().get(0);
+    }
+
+    @Test
+    void releasesInFlightWhenCallThrowsSynchronously() {
+        Route route = route("http://user-1:8081");
+        UpstreamInstance instance = loadBalancer.choose(route, null);
+
+        Mono<Integer> call = loadBalancer.execute(route, chosen -> {
+            throw new IllegalStateException("request could not be built");
+        }, status -> status);
+
+        assertThatThrownBy(call::block).isInstanceOf(IllegalStateException.class);
+        assertThat(instance.getInFlight()).isZero();
+    }
+
+    @Test
+    void releasesInFlightOnCompletionAndCancel() {
+        Route route = route("http://user-1:8081");
+        UpstreamInstance instance = loadBalancer.choose(route, null);
+
+        assertThat(loadBalancer.execute(route, chosen -> Mono.just(200), status -> status).block()).isEqualTo(200);
+        assertThat(instance.getInFlight()).isZero();
+
+        Disposable pending = loadBalancer.execute(route, chosen -> Mono.<Integer>never(), status -> status).subscribe();
+        assertThat(instance.getInFlight()).isEqualTo(1);
+        pending.dispose();
+        assertThat(instance.getInFlight()).isZero();
+    }
+
+    @Test
+    void ejectsAfterConsecutive5xxAndAvoidsEjectedInstance() {
+        Route route = route("http://user-1:8081,http://user-2:8081");
+        UpstreamInstance failing = loadBalancer.choose(route, null);
+        UpstreamInstance other = loadBalancer.choose(route, failing);
+        assertThat(other).isNotSameAs(failing);
+
+        for (int i = 0; i < 2; i++) {
+            loadBalancer.execute(route, failing, chosen -> Mono.just(chosen == failing ? 503 : 200), status -> status)
+                    .block();
+            loadBalancer.execute(route, other, chosen -> Mono.just(chosen == failing ? 503 : 200), status -> status)
+                    .block();
+        }
+
+        assertThat(failing.isHealthy()).isFalse();
+        assertThat(loadBalancer.hasAlternative(route, other)).isFalse();
+        for (int i = 0; i < 20; i++) {
+            assertThat(loadBalancer.choose(route, null)).isSameAs(other);
+        }
+    }
+
+    /**
+     * Upstream che accetta la connessione e non risponde: il probe scade dopo il timeout,
+     * ma checkHealth ritorna subito
+     */
+    @Test
+    void probesInBackgroundWithoutBlockingTheScheduler() throws Exception {
+        try (ServerSocket silent = new ServerSocket(0)) {
+            Route route = route("http://127.0.0.1:" + silent.getLocalPort());
+            UpstreamInstance instance = loadBalancer.choose(route, null);
+
+            long start = System.nanoTime();
+            loadBalancer.checkHealth();
+            assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(500));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (instance.isHealthy() && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(instance.isHealthy()).isFalse();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.springmon.gateway.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RouteTrieTest {
+
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+
+    private static RouteDefinition route(String id, String path, String... methods) {
+        RouteDefinition definition = new RouteDefinition();
+        definition.setId(id);
+        definition.setPath(path);
+        definition.setUpstream("auth");
+        definition.setMethods(List.of(methods));
+        return definition;
+    }
+
+    private static RouteTrie compile(RouteDefinition... definitions) {
+        GatewayRoutesProperties properties = new GatewayRoutesProperties();
+        properties.setUpstreams(Map.of("auth", "http://auth-1:8082, http://auth-2:8082/"));
+        properties.setRoutes(new ArrayList<>(List.of(definitions)));
+        return RouteTrie.compile(properties, DEFAULT_TIMEOUT);
+    }
+
+    private static String id(Route route) {
+        return route == null ? null : route.getId();
+    }
+
+    @Test
+    void exactRouteBeatsPrefix() {
+        RouteTrie trie = compile(
+                route("auth", "/api/auth/**"),
+                route("auth-login", "/api/auth/login", "POST"));
+
+        assertThat(id(trie.match("POST", "/api/auth/login"))).isEqualTo("auth-login");
+        assertThat(id(trie.match("POST", "/api/auth/logout"))).isEqualTo("auth");
+        assertThat(id(trie.match("POST", "/api/auth/login/extra"))).isEqualTo("auth");
+    }
+
+    @Test
+    void longestPrefixWins() {
+        RouteTrie trie = compile(
+                route("api", "/api/**"),
+                route("users", "/api/users/**"));
+
+        assertThat(id(trie.match("GET", "/api/users/42"))).isEqualTo("users");
+        assertThat(id(trie.match("GET", "/api/users"))).isEqualTo("users");
+        assertThat(id(trie.match("GET", "/api/orders/1"))).isEqualTo("api");
+        assertThat(id(trie.match("GET", "/other"))).isNull();
+    }
+
+    @Test
+    void prefixMatchesOnlyAtSegmentBoundary() {
+        RouteTrie trie = compile(route("users", "/api/users/**"));
+
+        assertThat(id(trie.match("GET", "/api/users"))).isEqualTo("users");
+        assertThat(id(trie.match("GET", "/api/users/"))).isEqualTo("users");
+        assertThat(id(trie.match("GET", "/api/users/1/roles"))).isEqualTo("users");
+        assertThat(trie.match("GET", "/api/usersX")).isNull();
+        assertThat(trie.match("GET", "/api/user")).isNull();
+    }
+
+    @Test
+    void methodSelectsAmongRoutesOnSamePathInDeclarationOrder() {
+        RouteTrie trie = compile(
+                route("profile-read", "/api/user/profile", "GET"),
+                route("profile-write", "/api/user/profile", "PUT", "PATCH"),
+                route("profile-any", "/api/user/profile"),
+                route("user-fallback", "/api/user/**", "GET"));
+
+        assertThat(id(trie.match("GET", "/api/user/profile"))).isEqualTo("profile-read");
+        assertThat(id(trie.match("PATCH", "/api/user/profile"))).isEqualTo("profile-write");
+        assertThat(id(trie.match("DELETE", "/api/user/profile"))).isEqualTo("profile-any");
+        assertThat(id(trie.match("DELETE", "/api/user/settings"))).isNull();
+        assertThat(trie.match("BREW", "/api/user/profile")).isNull();
+    }
+
+    @Test
+    void exactRouteWithoutMethodFallsBackToPrefix() {
+        RouteTrie trie = compile(
+                route("auth", "/api/auth/**", "GET", "POST"),
+                route("auth-login", "/api/auth/login", "POST"));
+
+        assertThat(id(trie.match("GET", "/api/auth/login"))).isEqualTo("auth");
+    }
+
+    @Test
+    void normalizesUpstreamUrlsAndDefaults() {
+        Route route = compile(route("auth", "/api/auth/**", "post")).getRoutes().get(0);
+
+        assertThat(route.getUpstreamUrls()).containsExactly("http://auth-1:8082", "http://auth-2:8082");
+        assertThat(route.getMethods()).containsExactly("POST");
+        assertThat(route.getTimeout()).isEqualTo(DEFAULT_TIMEOUT);
+    }
+
+    @Test
+    void rejectsInvalidDefinitions() {
+        assertThatThrownBy(() -> compile(route("relative", "api/**")))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("must start with '/'");
+        assertThatThrownBy(() -> compile(route("inner", "/api/*/users")))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("trailing /**");
+        assertThatThrownBy(() -> compile(route("method", "/api/**", "BREW")))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("unsupported method");
+
+        RouteDefinition unknown = route("unknown", "/api/**");
+        unknown.setUpstream("billing");
+        assertThatThrownBy(() -> compile(unknown))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("unknown upstream");
+    }
+}
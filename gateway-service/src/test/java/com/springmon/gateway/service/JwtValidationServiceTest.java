@@ -0,0 +1,79 @@
+package com.springmon.gateway.service;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtValidationServiceTest {
+
+    private static final String SECRET = "springmon_jwt_secret_key_2024_very_secure_random_string";
+
+    private JwtValidationService service;
+
+    @BeforeEach
+    void setUp() {
+        service = newService(10_000);
+    }
+
+    private static JwtValidationService newService(int cacheMaxSize) {
+        JwtValidationService service = new JwtValidationService(new SimpleMeterRegistry(), new TokenRevocations(1000));
+        ReflectionTestUtils.setField(service, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(service, "cacheMaxSize", cacheMaxSize);
+        service.init();
+        return service;
+    }
+
+    static String token(String subject, long expiresAtMillis, String secret) {
+        return Jwts.builder()
+                .id(subject + "-jti")
+                .subject(subject)
+                .claim("roles", "ROLE_USER")
+                .issuedAt(new Date(System.currentTimeMillis() - 1000))
+                .expiration(new Date(expiresAtMillis))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+
+    @Test
+    void verifiesOnceAndServesRepeatsFromCache() {
+        String token = token("alice", System.currentTimeMillis() + 60_000, SECRET);
+
+        VerifiedClaims first = service.verify(token);
+        VerifiedClaims second = service.verify(token);
+
+        assertThat(first).isNotNull();
+        assertThat(first.getSubject()).isEqualTo("alice");
+        assertThat(first.getRoles()).isEqualTo("ROLE_USER");
+        assertThat(first.getTokenId()).isEqualTo("alice-jti");
+        assertThat(second).as("second lookup comes from the cache").isSameAs(first);
+    }
+
+    @Test
+    void rejectsExpiredAndForgedTokens() {
+        assertThat(service.verify(token("alice", System.currentTimeMillis() - 1000, SECRET))).isNull();
+        assertThat(service.verify(token("alice", System.currentTimeMillis() + 60_000,
+                "another_secret_key_that_is_long_enough_for_hs256"))).isNull();
+        assertThat(service.verify("not-a-jwt")).isNull();
+        assertThat(service.verify(null)).isNull();
+    }
+
+    @Test
+    void zeroSizedCacheParsesEveryTime() {
+        JwtValidationService uncached = newService(0);
+        String token = token("bob", System.currentTimeMillis() + 60_000, SECRET);
+
+        VerifiedClaims first = uncached.verify(token);
+        VerifiedClaims second = uncached.verify(token);
+
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull().isNotSameAs(first);
+    }
+}
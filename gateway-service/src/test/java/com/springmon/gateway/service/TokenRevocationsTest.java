@@ -0,0 +1,107 @@
+package com.springmon.gateway.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationsTest {
+
+    private static final long NOW = System.currentTimeMillis();
+    private static final long HOUR = 3_600_000;
+
+    private static VerifiedClaims claims(String subject, long issuedAtMillis, String tokenId) {
+        return new VerifiedClaims(subject, "ROLE_USER", issuedAtMillis, issuedAtMillis + HOUR, tokenId);
+    }
+
+    @Test
+    void revokesSingleTokenById() {
+        TokenRevocations revocations = new TokenRevocations(1000);
+        revocations.revokeToken("jti-1", NOW + HOUR);
+
+        assertThat(revocations.isRevoked(claims("alice", NOW, "jti-1"))).isTrue();
+        assertThat(revocations.isRevoked(claims("alice", NOW, "jti-2"))).isFalse();
+        assertThat(revocations.isRevoked(claims("alice", NOW, null))).isFalse();
+    }
+
+    /**
+     * iat ha la precisione del secondo: il token emesso nello stesso istante della revoca e' revocato,
+     * quelli emessi dopo (nuovo login) restano validi
+     */
+    @Test
+    void revokesUserTokensIssuedUpToCutoff() {
+        TokenRevocations revocations = new TokenRevocations(1000);
+        long cutoff = NOW - 10_000;
+        revocations.revokeUser("alice", cutoff, NOW + HOUR);
+
+        assertThat(revocations.isRevoked(claims("alice", cutoff - 60_000, "old"))).isTrue();
+        assertThat(revocations.isRevoked(claims("alice", cutoff, "same-second"))).isTrue();
+        assertThat(revocations.isRevoked(claims("alice", cutoff + 1000, "new-login"))).isFalse();
+        assertThat(revocations.isRevoked(claims("bob", cutoff - 60_000, "other-user"))).isFalse();
+    }
+
+    @Test
+    void latestUserCutoffWinsInAnyOrder() {
+        TokenRevocations revocations = new TokenRevocations(1000);
+        revocations.revokeUser("alice", NOW - 1000, NOW + HOUR);
+        revocations.revokeUser("alice", NOW - 50_000, NOW + HOUR);
+
+        assertThat(revocations.isRevoked(claims("alice", NOW - 2000, "between"))).isTrue();
+        assertThat(revocations.userCount()).isEqualTo(1);
+    }
+
+    @Test
+    void resyncMergesWithKnownRevocationsAndDropsExpired() {
+        TokenRevocations revocations = new TokenRevocations(1000);
+        revocations.revokeToken("pushed", NOW + HOUR);
+        revocations.revokeToken("expired", NOW - 1);
+
+        revocations.replace(Map.of("resynced", NOW + HOUR, "resynced-expired", NOW - 1),
+                Map.of("alice", new TokenRevocations.UserCutoff(NOW, NOW + HOUR),
+                        "bob", new TokenRevocations.UserCutoff(NOW, NOW - 1)),
+                NOW);
+
+        assertThat(revocations.isRevoked(claims("carol", NOW, "pushed"))).isTrue();
+        assertThat(revocations.isRevoked(claims("carol", NOW, "resynced"))).isTrue();
+        assertThat(revocations.isRevoked(claims("carol", NOW, "expired"))).isFalse();
+        assertThat(revocations.isRevoked(claims("alice", NOW - 1000, "a"))).isTrue();
+        assertThat(revocations.isRevoked(claims("bob", NOW - 1000, "b"))).isFalse();
+        assertThat(revocations.tokenCount()).isEqualTo(2);
+        assertThat(revocations.userCount()).isEqualTo(1);
+    }
+
+    @Test
+    void sweepDropsExpiredRevocations() {
+        TokenRevocations revocations = new TokenRevocations(1000);
+        revocations.revokeToken("live", NOW + HOUR);
+        revocations.revokeToken("expired", NOW - 1);
+        revocations.revokeUser("alice", NOW, NOW - 1);
+
+        revocations.evictExpired();
+
+        assertThat(revocations.tokenCount()).isEqualTo(1);
+        assertThat(revocations.userCount()).isZero();
+        assertThat(revocations.isRevoked(claims("alice", NOW - 1000, "live"))).isTrue();
+    }
+
+    @Test
+    void bloomFilterHasNoFalseNegativesAndFewFalsePositives() {
+        int entries = 10_000;
+        TokenRevocations.BloomFilter bloom = new TokenRevocations.BloomFilter(entries);
+        for (int i = 0; i < entries; i++) {
+            bloom.add("revoked-" + i);
+        }
+
+        for (int i = 0; i < entries; i++) {
+            assertThat(bloom.mightContain("revoked-" + i)).isTrue();
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < entries; i++) {
+            if (bloom.mightContain("valid-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(entries * 3 / 100);
+    }
+}
@@ -0,0 +1,66 @@
+package com.springmon.gateway.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedClaimsCacheTest {
+
+    private static final long NOW = System.currentTimeMillis();
+
+    private static VerifiedClaims claims(String subject, long expiresAtMillis) {
+        return new VerifiedClaims(subject, "ROLE_USER", NOW - 1000, expiresAtMillis, subject + "-jti");
+    }
+
+    @Test
+    void returnsClaimsUntilTokenExpiry() {
+        VerifiedClaimsCache cache = new VerifiedClaimsCache(10);
+        VerifiedClaimsCache.TokenDigest key = VerifiedClaimsCache.digest("token-a");
+        VerifiedClaims claims = claims("alice", NOW + 60_000);
+
+        cache.put(key, claims, NOW);
+
+        assertThat(cache.get(key, NOW)).isSameAs(claims);
+        assertThat(cache.get(key, NOW + 60_000)).isNull();
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.get(key, NOW)).as("removed once expired").isNull();
+    }
+
+    @Test
+    void doesNotStoreExpiredClaims() {
+        VerifiedClaimsCache cache = new VerifiedClaimsCache(10);
+        VerifiedClaimsCache.TokenDigest key = VerifiedClaimsCache.digest("token-expired");
+
+        cache.put(key, claims("bob", NOW), NOW);
+
+        assertThat(cache.get(key, NOW - 1)).isNull();
+    }
+
+    @Test
+    void storesNewTokensWhenFullOfLiveEntries() {
+        int maxSize = 100;
+        VerifiedClaimsCache cache = new VerifiedClaimsCache(maxSize);
+        for (int i = 0; i < maxSize; i++) {
+            cache.put(VerifiedClaimsCache.digest("live-" + i), claims("user-" + i, NOW + 3_600_000), NOW);
+        }
+
+        VerifiedClaimsCache.TokenDigest key = VerifiedClaimsCache.digest("newcomer");
+        VerifiedClaims newcomer = claims("newcomer", NOW + 3_600_000);
+        cache.put(key, newcomer, NOW);
+
+        assertThat(cache.get(key, NOW)).isSameAs(newcomer);
+        for (int i = 0; i < 10 * maxSize; i++) {
+            cache.put(VerifiedClaimsCache.digest("flood-" + i), claims("flood-" + i, NOW + 3_600_000), NOW);
+        }
+        cache.evictExpired();
+        assertThat(cache.size()).isLessThanOrEqualTo(maxSize);
+        assertThat(cache.evictionCount()).isGreaterThan(0);
+    }
+
+    @Test
+    void digestDependsOnlyOnTokenContent() {
+        assertThat(VerifiedClaimsCache.digest("same")).isEqualTo(VerifiedClaimsCache.digest("same"));
+        assertThat(VerifiedClaimsCache.digest("same")).isNotEqualTo(VerifiedClaimsCache.digest("other"));
+    }
+}
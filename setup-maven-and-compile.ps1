@@ -89,6 +89,10 @@ try {
     exit 1
 }
 
+# Modulo condiviso (common) usato da tutti i servizi: va installato prima di compilarli
+Write-Host "`n📦 Installazione modulo common..." -ForegroundColor Cyan
+mvn clean install -DskipTests -pl common -am
+
 # Compila tutti i servizi
 Write-Host "`n🔨 Inizio compilazione servizi..." -ForegroundColor Green
 $services = @("gateway-service", "auth-service", "user-service")
@@ -124,7 +128,7 @@ Write-Host "`n🎯 Riepilogo Compilazione:" -ForegroundColor Green
 Write-Host "=========================" -ForegroundColor Green
 
 foreach ($service in $services) {
-    $jarPath = "$service\target\$service-1.0.0-SNAPSHOT.jar"
+    $jarPath = "$service\target\$service-1.0.0-SNAPSHOT-exec.jar"
     if (Test-Path $jarPath) {
         $jarInfo = Get-Item $jarPath
         Write-Host "✅ $service`: $($jarInfo.LastWriteTime)" -ForegroundColor Green
@@ -0,0 +1,144 @@
+package com.springmon.user.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/**
+ * Verifica l'identita' firmata dal gateway (header X-Internal-Identity) al posto del JWT.
+ * Layout binario, Base64 URL senza padding (lo stesso di InternalIdentitySigner nel gateway):
+ * <pre>
+ * versione (1 byte) | scadenza epoch millis (8 byte)
+ * subject | roles | request id   (ciascuno: lunghezza unsigned short + UTF-8)
+ * HMAC-SHA256 dei byte precedenti troncato a 16 byte
+ * </pre>
+ */
+@Component
+public class InternalIdentityVerifier {
+
+    public static final String HEADER = "X-Internal-Identity";
+
+    private static final byte VERSION = 1;
+    private static final int MAC_LENGTH = 16;
+    private static final int MIN_LENGTH = 1 + 8 + 6 + MAC_LENGTH;
+
+    @Value("${internal-identity.enabled:true}")
+    private boolean enabled;
+
+    @Value("${internal-identity.secret:springmon_internal_identity_key_2024_change_me}")
+    private String secret;
+
+    private ThreadLocal<Mac> macs;
+
+    @PostConstruct
+    public void init() {
+        SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 not available", e);
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Identita' contenuta nell'header, oppure null se manca, e' scaduta o la firma non corrisponde
+     */
+    public Identity verify(String header) {
+        if (header == null || header.isEmpty()) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(header);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (bytes.length < MIN_LENGTH || bytes[0] != VERSION) {
+            return null;
+        }
+
+        int signedLength = bytes.length - MAC_LENGTH;
+        Mac mac = macs.get();
+        mac.update(bytes, 0, signedLength);
+        byte[] expected = mac.doFinal();
+        // Confronto a tempo costante sui 16 byte del MAC
+        int diff = 0;
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            diff |= expected[i] ^ bytes[signedLength + i];
+        }
+        if (diff != 0) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, signedLength - 1);
+        try {
+            long expiresAt = buffer.getLong();
+            if (expiresAt <= System.currentTimeMillis()) {
+                return null;
+            }
+            String subject = readString(buffer);
+            String roles = readString(buffer);
+            String requestId = readString(buffer);
+            if (subject.isEmpty() || buffer.hasRemaining()) {
+                return null;
+            }
+            return new Identity(subject, roles.isEmpty() ? null : roles, requestId);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * Utente autenticato dal gateway (o dal JWT, senza request id)
+     */
+    public static final class Identity {
+
+        private final String subject;
+        private final String roles;
+        private final String requestId;
+
+        public Identity(String subject, String roles, String requestId) {
+            this.subject = subject;
+            this.roles = roles;
+            this.requestId = requestId;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getRoles() {
+            return roles;
+        }
+
+        public String getRequestId() {
+            return requestId;
+        }
+    }
+}
@@ -2,12 +2,14 @@ package com.springmon.user.config;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -25,7 +27,8 @@ import java.util.List;
 
 /**
  * Filtro JWT per User Service
- * Valida i token JWT localmente senza dipendenze esterne
+ * Accetta l'identita' firmata dal gateway (X-Internal-Identity) e solo in sua assenza
+ * valida il JWT localmente, con un solo parsing per richiesta
  */
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
@@ -34,34 +37,53 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Value("${jwt.secret:springmon_jwt_secret_key_2024_very_secure_random_string}")
     private String jwtSecret;
 
+    @Autowired
+    private InternalIdentityVerifier internalIdentityVerifier;
+
+    private JwtParser jwtParser;
+
+    /**
+     * Costruisce una sola volta chiave HMAC e parser
+     */
+    @PostConstruct
+    public void init() {
+        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parser().verifyWith(key).build();
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
                                   HttpServletResponse response, 
                                   FilterChain filterChain) throws ServletException, IOException {
         
         try {
-            String jwt = getJwtFromRequest(request);
-
-            if (StringUtils.hasText(jwt) && validateToken(jwt)) {
-                String username = getUsernameFromToken(jwt);
-                String roles = getRolesFromToken(jwt);
-
-                if (StringUtils.hasText(username)) {
-                    // Crea authorities dal ruolo
-                    List<SimpleGrantedAuthority> authorities = Collections.singletonList(
-                        new SimpleGrantedAuthority(roles != null ? roles : "ROLE_USER")
-                    );
-
-                    // Crea authentication token
-                    UsernamePasswordAuthenticationToken authentication = 
-                        new UsernamePasswordAuthenticationToken(username, null, authorities);
-                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-                    // Imposta il context di sicurezza
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
-                    
-                    logger.debug("Authentication set for user: {}", username);
-                }
+            InternalIdentityVerifier.Identity identity = null;
+            if (internalIdentityVerifier.isEnabled()) {
+                identity = internalIdentityVerifier.verify(request.getHeader(InternalIdentityVerifier.HEADER));
+            }
+            if (identity == null) {
+                String jwt = getJwtFromRequest(request);
+                identity = StringUtils.hasText(jwt) ? parseToken(jwt) : null;
+            }
+
+            if (identity != null && StringUtils.hasText(identity.getSubject())) {
+                String username = identity.getSubject();
+                String roles = identity.getRoles();
+
+                // Crea authorities dal ruolo
+                List<SimpleGrantedAuthority> authorities = Collections.singletonList(
+                    new SimpleGrantedAuthority(roles != null ? roles : "ROLE_USER")
+                );
+
+                // Crea authentication token
+                UsernamePasswordAuthenticationToken authentication = 
+                    new UsernamePasswordAuthenticationToken(username, null, authorities);
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+                // Imposta il context di sicurezza
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+                
+                logger.debug("Authentication set for user: {}", username);
             }
         } catch (Exception ex) {
             logger.error("Cannot set user authentication in security context", ex);
@@ -72,63 +94,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
 
     /**
-     * Valida il token JWT localmente
+     * Valida il token JWT localmente (firma e scadenza) ed estrae username e ruoli
+     * con un solo parsing; null se il token non e' valido
      */
-    private boolean validateToken(String token) {
+    private InternalIdentityVerifier.Identity parseToken(String token) {
         try {
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-            
-            Jws<Claims> claimsJws = Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token);
-            
+            Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+
             // Controlla scadenza
-            Date expiration = claimsJws.getPayload().getExpiration();
-            return expiration.after(new Date());
+            Date expiration = claims.getExpiration();
+            if (expiration == null || !expiration.after(new Date())) {
+                return null;
+            }
+            return new InternalIdentityVerifier.Identity(claims.getSubject(), claims.get("roles", String.class), null);
             
         } catch (JwtException | IllegalArgumentException e) {
             logger.debug("Invalid JWT token: {}", e.getMessage());
-            return false;
-        }
-    }
-
-    /**
-     * Estrae l'username dal token JWT
-     */
-    private String getUsernameFromToken(String token) {
-        try {
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-            
-            Claims claims = Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-            
-            return claims.getSubject();
-            
-        } catch (JwtException | IllegalArgumentException e) {
-            return null;
-        }
-    }
-
-    /**
-     * Estrae i ruoli dal token JWT
-     */
-    private String getRolesFromToken(String token) {
-        try {
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-            
-            Claims claims = Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-            
-            return claims.get("roles", String.class);
-            
-        } catch (JwtException | IllegalArgumentException e) {
             return null;
         }
     }